@@ -0,0 +1,20 @@
+package searchengine.cluster;
+
+import org.springframework.boot.context.properties.bind.*;
+import org.springframework.context.annotation.*;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import java.util.List;
+
+/**
+ * Matches when {@code cluster.nodes} lists at least one node, that is when this instance is part
+ * of a cluster, whether it is a node, a router or both.
+ */
+public class ClusterCondition implements Condition {
+    @Override
+    public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        return !Binder.get(context.getEnvironment())
+                .bind("cluster.nodes", Bindable.listOf(String.class))
+                .orElse(List.of())
+                .isEmpty();
+    }
+}
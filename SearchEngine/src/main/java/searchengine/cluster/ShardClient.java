@@ -0,0 +1,80 @@
+package searchengine.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+import searchengine.config.ClusterSettings;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.*;
+
+/**
+ * Calls the shard endpoints of other nodes. Requests are sent asynchronously, so a router
+ * waits for the slowest node rather than for the sum of all of them.
+ */
+@Component
+public class ShardClient {
+    private final ObjectMapper objectMapper;
+    private final HttpClient client;
+    private final Duration timeOut;
+
+    public ShardClient(ObjectMapper objectMapper, ClusterSettings settings) {
+        this.objectMapper = objectMapper;
+        this.timeOut = Duration.ofMillis(settings.getTimeOut() == null ? 5000 : settings.getTimeOut());
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(timeOut)
+                .build();
+    }
+
+    public <T> CompletableFuture<T> get(String node, String path, Map<String, String> parameters, Class<T> type) {
+        StringJoiner query = new StringJoiner("&", "?", "").setEmptyValue("");
+        parameters.forEach((name, value) -> {
+            if(value != null) {
+                query.add(name + "=" + URLEncoder.encode(value, StandardCharsets.UTF_8));
+            }
+        });
+        HttpRequest request = HttpRequest.newBuilder(URI.create(node + path + query))
+                .timeout(timeOut)
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> {
+                    if(response.statusCode() != 200) {
+                        throw new IllegalStateException("Node " + node + " answered " + response.statusCode());
+                    }
+                    try {
+                        return objectMapper.readValue(response.body(), type);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .orTimeout(timeOut.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Result of {@code future}, or null when the node failed or did not answer in time.
+     */
+    public <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        client.close();
+    }
+}
@@ -0,0 +1,79 @@
+package searchengine.cluster;
+
+import org.springframework.stereotype.Component;
+import searchengine.config.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Assigns every configured site to one node of the cluster by rendezvous hashing of
+ * the node and site URLs, so all nodes agree on the owner without talking to each other,
+ * and adding a node only moves the sites that the new node wins.
+ * Without configured nodes this instance owns every site. With nodes, {@code cluster.self} must
+ * be one of them, unless the instance is only a router; a node that finds itself missing would
+ * own nothing, so it refuses to start.
+ */
+@Component
+public class ShardMap {
+    private final SitesList sites;
+    private final List<String> nodes;
+    private final String self;
+
+    public ShardMap(SitesList sites, ClusterSettings settings) {
+        this.sites = sites;
+        this.nodes = settings.getNodes().stream().map(ShardMap::normalize).distinct().toList();
+        this.self = settings.getSelf() == null ? null : normalize(settings.getSelf());
+        if(!nodes.isEmpty() && !nodes.contains(self) && !settings.isRouter()) {
+            throw new IllegalStateException(String.format(
+                    "cluster.self %s is not one of cluster.nodes %s", self, nodes));
+        }
+    }
+
+    public boolean isClustered() {
+        return !nodes.isEmpty();
+    }
+
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    public boolean owns(String siteUrl) {
+        return nodes.isEmpty() || ownerOf(siteUrl).equals(self);
+    }
+
+    public String ownerOf(String siteUrl) {
+        String owner = null;
+        long best = 0;
+        for(String node : nodes) {
+            long weight = weight(node, siteUrl);
+            if(owner == null || Long.compareUnsigned(weight, best) > 0) {
+                owner = node;
+                best = weight;
+            }
+        }
+        return owner;
+    }
+
+    public List<Site> sitesOf(String node) {
+        return sites.getSites().stream()
+                .filter(site -> node.equals(ownerOf(site.getUrl())))
+                .toList();
+    }
+
+    private static long weight(String node, String siteUrl) {
+        long hash = 0xcbf29ce484222325L;
+        for(byte b : (node + '\n' + siteUrl).getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    private static String normalize(String node) {
+        return node.endsWith("/") ? node.substring(0, node.length() - 1) : node;
+    }
+}
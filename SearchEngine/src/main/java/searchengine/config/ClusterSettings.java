@@ -0,0 +1,17 @@
+package searchengine.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "cluster")
+@Component
+public class ClusterSettings {
+    private String self;
+    private List<String> nodes = new ArrayList<>();
+    private boolean router;
+    private Integer timeOut;
+}
@@ -11,7 +11,24 @@ public class Config {
     private String userAgent;
     private String referrer;
     private Integer timeOut;
+    private Integer bodyTimeOut;
+    private Integer maxBodySize;
     private Long delay;
     private Long threshold;
+    private Integer fetchers;
+    private Integer hostConcurrency;
+    private Integer queueCapacity;
+    private Integer parseThreads;
+    private Integer lemmatizeThreads;
+    private Integer persistThreads;
+    private Integer bulkBatchSize;
+    private Integer idBlockSize;
     private Double maxLemmaOccurrencePercentage;
+    private Integer cursorCacheSize;
+    private Integer searchCacheCapacity;
+    private Integer searchThreads;
+    private Long searchTimeout;
+    private String segmentDirectory;
+    private Long segmentMergeDelay;
+    private String snapshotDirectory;
 }
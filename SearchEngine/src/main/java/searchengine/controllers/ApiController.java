@@ -15,6 +15,7 @@ public class ApiController {
     private final StatisticsService statisticsService;
     private final IndexingService indexingService;
     private final SearchService searchService;
+    private final SnapshotService snapshotService;
 
     @GetMapping("/statistics")
     public ResponseEntity<StatisticsResponse> statistics() {
@@ -22,8 +23,9 @@ public class ApiController {
     }
 
     @GetMapping("/startIndexing")
-    public ResponseEntity<Map<String, String>> startIndexing() {
-        return ResponseEntity.ok(indexingService.startIndexing());
+    public ResponseEntity<Map<String, String>> startIndexing(
+            @RequestParam(defaultValue = "false") boolean incremental) {
+        return ResponseEntity.ok(indexingService.startIndexing(incremental));
     }
 
     @GetMapping("/stopIndexing")
@@ -37,7 +39,18 @@ public class ApiController {
     }
 
     @GetMapping("/search")
-    public ResponseEntity<SearchResponse> search(String query, Integer offset, Integer limit, String site) {
-        return ResponseEntity.ok(searchService.search(query, offset, limit, site));
+    public ResponseEntity<SearchResponse> search(String query, Integer offset, Integer limit, String site,
+                                                 String cursor) {
+        return ResponseEntity.ok(searchService.search(query, offset, limit, site, cursor));
+    }
+
+    @PostMapping("/snapshot/export")
+    public ResponseEntity<Map<String, String>> exportSnapshot(String site) {
+        return ResponseEntity.ok(snapshotService.exportSnapshot(site));
+    }
+
+    @PostMapping("/snapshot/import")
+    public ResponseEntity<Map<String, String>> importSnapshot(String file) {
+        return ResponseEntity.ok(snapshotService.importSnapshot(file));
     }
 }
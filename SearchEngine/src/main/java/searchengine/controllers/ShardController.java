@@ -0,0 +1,38 @@
+package searchengine.controllers;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import searchengine.cluster.ClusterCondition;
+import searchengine.dto.search.SearchResponse;
+import searchengine.dto.statistics.StatisticsResponse;
+import searchengine.services.*;
+
+/**
+ * Endpoints the router of a cluster queries on every node. They always answer from the sites of
+ * this node, also on an instance that is a router itself, and exist only in cluster mode.
+ */
+@RestController
+@RequestMapping("/api/shard")
+@Conditional(ClusterCondition.class)
+public class ShardController {
+    private final StatisticsService statisticsService;
+    private final SearchService searchService;
+
+    public ShardController(@Qualifier("local") StatisticsService statisticsService,
+                           @Qualifier("local") SearchService searchService) {
+        this.statisticsService = statisticsService;
+        this.searchService = searchService;
+    }
+
+    @GetMapping("/statistics")
+    public ResponseEntity<StatisticsResponse> statistics() {
+        return ResponseEntity.ok(statisticsService.getStatistics());
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<SearchResponse> search(String query, Integer offset, Integer limit, String site) {
+        return ResponseEntity.ok(searchService.search(query, offset, limit, site, null));
+    }
+}
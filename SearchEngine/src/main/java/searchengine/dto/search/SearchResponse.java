@@ -7,5 +7,9 @@ import java.util.List;
 public class SearchResponse {
     private boolean result;
     private Integer count;
+    private Boolean exactCount;
     private List<SearchData> data;
+    private String cursor;
+    private Double maxRelevance;
+    private List<String> timedOutSites;
 }
@@ -7,4 +7,5 @@ import java.util.List;
 public class StatisticsData {
     private TotalStatistics total;
     private List<DetailedStatisticsItem> detailed;
+    private SearchCacheStatistics searchCache;
 }
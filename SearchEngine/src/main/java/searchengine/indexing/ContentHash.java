@@ -0,0 +1,27 @@
+package searchengine.indexing;
+
+import java.nio.charset.StandardCharsets;
+import java.security.*;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 of the extracted title and text of a page. A re-crawl compares it with the stored
+ * hash to skip lemmatization of pages whose markup changed but whose text did not.
+ */
+public final class ContentHash {
+    private ContentHash() {
+    }
+
+    public static String of(String title, String content) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update(title.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(content.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
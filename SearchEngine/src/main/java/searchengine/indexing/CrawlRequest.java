@@ -0,0 +1,10 @@
+package searchengine.indexing;
+
+import lombok.Data;
+
+@Data
+public class CrawlRequest {
+    private final SiteCrawl siteCrawl;
+    private final String url;
+    private final int depth;
+}
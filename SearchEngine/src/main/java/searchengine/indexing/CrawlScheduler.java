@@ -0,0 +1,166 @@
+package searchengine.indexing;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.HttpStatusException;
+import org.springframework.stereotype.Component;
+import searchengine.config.Config;
+import searchengine.metrics.CrawlMetrics;
+import searchengine.repositories.PageStateView;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CrawlScheduler {
+    private final Config config;
+    private final Parser parser;
+    private final CancelFlag cancelFlag;
+    private final IndexingPipeline pipeline;
+    private final CrawlMetrics metrics;
+    private final AtomicInteger activeFetches = new AtomicInteger();
+    private final Map<String, HostQueue> hosts = new ConcurrentHashMap<>();
+    private final DelayQueue<HostQueue> readyHosts = new DelayQueue<>();
+    private ExecutorService fetchers;
+    private volatile boolean closed;
+
+    public void crawl(SiteCrawl siteCrawl) {
+        try {
+            start();
+        } catch (RejectedExecutionException e) {
+            log.warn("Crawl scheduler is shut down, site " + siteCrawl.getSite().getName() + " is not crawled");
+        }
+        siteCrawl.seeds().forEach(this::schedule);
+    }
+
+    public void schedule(CrawlRequest request) {
+        request.getSiteCrawl().requestScheduled();
+        if(cancelFlag.isCancelled() || closed) {
+            request.getSiteCrawl().requestDone();
+            return;
+        }
+        hosts.computeIfAbsent(hostOf(request.getUrl()), HostQueue::new)
+                .add(request, config.getHostConcurrency(), readyHosts);
+    }
+
+    public void cancel() {
+        hosts.values().forEach(host ->
+                host.drain().forEach(request -> request.getSiteCrawl().requestDone()));
+    }
+
+    public int getQueuedCount() {
+        return hosts.values().stream().mapToInt(HostQueue::size).sum();
+    }
+
+    public int getActiveFetches() {
+        return activeFetches.get();
+    }
+
+    private synchronized void start() {
+        if(closed) {
+            throw new RejectedExecutionException("Crawl scheduler is shut down");
+        }
+        if(fetchers != null) {
+            return;
+        }
+        pipeline.start(this);
+        fetchers = Executors.newVirtualThreadPerTaskExecutor();
+        for(int i = 0; i < config.getFetchers(); i++) {
+            fetchers.execute(this::fetchLoop);
+        }
+    }
+
+    private void fetchLoop() {
+        while(!Thread.currentThread().isInterrupted()) {
+            HostQueue host;
+            try {
+                host = readyHosts.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            CrawlRequest request = host.poll(config.getDelay(), config.getHostConcurrency(), readyHosts);
+            if(request == null) {
+                continue;
+            }
+            PageData pageData;
+            try {
+                pageData = download(request);
+            } finally {
+                host.complete(config.getDelay(), config.getHostConcurrency(), readyHosts);
+            }
+            if(pageData != null) {
+                process(request, pageData);
+            }
+        }
+    }
+
+    /**
+     * Returns null if the request is finished without a page: cancelled, failed or not modified.
+     */
+    private PageData download(CrawlRequest request) {
+        SiteCrawl siteCrawl = request.getSiteCrawl();
+        if(cancelFlag.isCancelled()) {
+            siteCrawl.requestDone();
+            return null;
+        }
+
+        PageData pageData;
+        PageStateView previous = siteCrawl.revisit(request.getUrl());
+        long start = System.nanoTime();
+        activeFetches.incrementAndGet();
+        try {
+            pageData = previous == null ? parser.getConnection(request.getUrl())
+                    : parser.getConnection(request.getUrl(), previous.getEtag(), previous.getLastModified());
+            metrics.fetched(pageData.getStatusCode(), System.nanoTime() - start);
+        } catch (HttpStatusException e) {
+            metrics.fetched(e.getStatusCode(), System.nanoTime() - start);
+            siteCrawl.fetchFailed(request, e);
+            return null;
+        } catch (Exception e) {
+            metrics.fetchFailed(System.nanoTime() - start);
+            siteCrawl.fetchFailed(request, e);
+            return null;
+        } finally {
+            activeFetches.decrementAndGet();
+        }
+        if(pageData.isNotModified()) {
+            siteCrawl.notModified();
+            return null;
+        }
+        return pageData;
+    }
+
+    private void process(CrawlRequest request, PageData pageData) {
+        try {
+            pipeline.fetched(request, pageData);
+        } catch (InterruptedException e) {
+            request.getSiteCrawl().requestDone();
+            Thread.currentThread().interrupt();
+        } catch (RejectedExecutionException e) {
+            request.getSiteCrawl().requestDone();
+        }
+    }
+
+    private static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host == null ? url : host;
+        } catch (IllegalArgumentException e) {
+            return url;
+        }
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        closed = true;
+        if(fetchers != null) {
+            fetchers.shutdownNow();
+        }
+        cancel();
+    }
+}
@@ -0,0 +1,9 @@
+package searchengine.indexing;
+
+import lombok.Data;
+
+@Data
+public class FetchedPage {
+    private final CrawlRequest request;
+    private final PageData pageData;
+}
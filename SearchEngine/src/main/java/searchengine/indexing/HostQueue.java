@@ -0,0 +1,76 @@
+package searchengine.indexing;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+class HostQueue implements Delayed {
+    private final String host;
+    private final Deque<CrawlRequest> requests = new ArrayDeque<>();
+    private long nextFetchAt;
+    private int inFlight;
+    private boolean ready;
+
+    HostQueue(String host) {
+        this.host = host;
+    }
+
+    synchronized void add(CrawlRequest request, int maxInFlight, DelayQueue<HostQueue> readyHosts) {
+        requests.add(request);
+        markReady(maxInFlight, readyHosts);
+    }
+
+    synchronized CrawlRequest poll(long delay, int maxInFlight, DelayQueue<HostQueue> readyHosts) {
+        ready = false;
+        CrawlRequest request = requests.poll();
+        if(request == null) {
+            return null;
+        }
+        inFlight++;
+        nextFetchAt = System.currentTimeMillis() + delay;
+        markReady(maxInFlight, readyHosts);
+        return request;
+    }
+
+    /**
+     * Called when a response has been read. The delay to the next fetch counts from here, unless
+     * the host is already waiting in {@code readyHosts} for another slot.
+     */
+    synchronized void complete(long delay, int maxInFlight, DelayQueue<HostQueue> readyHosts) {
+        inFlight--;
+        if(!ready) {
+            nextFetchAt = Math.max(nextFetchAt, System.currentTimeMillis() + delay);
+        }
+        markReady(maxInFlight, readyHosts);
+    }
+
+    synchronized List<CrawlRequest> drain() {
+        List<CrawlRequest> drained = new ArrayList<>(requests);
+        requests.clear();
+        return drained;
+    }
+
+    synchronized int size() {
+        return requests.size();
+    }
+
+    String getHost() {
+        return host;
+    }
+
+    private void markReady(int maxInFlight, DelayQueue<HostQueue> readyHosts) {
+        if(!ready && !requests.isEmpty() && inFlight < maxInFlight) {
+            ready = true;
+            readyHosts.offer(this);
+        }
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(nextFetchAt - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+        return Long.compare(getDelay(TimeUnit.MILLISECONDS), other.getDelay(TimeUnit.MILLISECONDS));
+    }
+}
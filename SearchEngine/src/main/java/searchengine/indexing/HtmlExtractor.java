@@ -0,0 +1,381 @@
+package searchengine.indexing;
+
+import org.jsoup.internal.StringUtil;
+import org.jsoup.nodes.Entities;
+import java.net.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.regex.*;
+
+/**
+ * Single-pass extraction of the title, the text and the absolute links of an HTML page,
+ * without building a DOM. The page is scanned once as a stream of tags and text runs:
+ * script and style bodies, comments and declarations are skipped, entities are decoded,
+ * and whitespace is collapsed with a separator at block element boundaries, the same way
+ * Jsoup's {@code Document.text()} does; it is kept as is in {@code title}, {@code textarea}
+ * and {@code pre}. Memory is bounded by the page text and link list.
+ */
+public final class HtmlExtractor {
+    private static final Set<String> SKIPPED = Set.of("script", "style", "noframes", "noembed", "iframe", "xmp");
+    private static final Set<String> BLOCKS = Set.of(
+            "html", "head", "body", "title", "meta", "link", "frameset", "frame", "noscript", "script",
+            "style", "noframes", "address", "article", "aside", "blockquote", "canvas", "center", "dd",
+            "details", "dir", "div", "dl", "dt", "fieldset", "figcaption", "figure", "footer", "form", "h1",
+            "h2", "h3", "h4", "h5", "h6", "header", "hgroup", "hr", "li", "main", "menu", "nav", "ol", "p",
+            "pre", "section", "table", "caption", "colgroup", "col", "thead", "tbody", "tfoot", "tr", "th",
+            "td", "ul", "video", "audio", "template", "ins", "del", "br");
+    private static final Pattern META_CHARSET = Pattern.compile(
+            "<meta[^>]+charset\\s*=\\s*[\"']?([a-z0-9_:.\\-]+)", Pattern.CASE_INSENSITIVE);
+    private static final int CHARSET_SCAN_LENGTH = 5000;
+
+    private final String html;
+    private final StringBuilder text;
+    private final List<String> links = new ArrayList<>();
+    private String baseUri;
+    private URL baseUrl;
+    private String title;
+    private boolean baseSeen;
+    private boolean pendingSpace;
+    private boolean preserveSpace;
+    private int preDepth;
+    private int position;
+
+    private HtmlExtractor(String html, String baseUri) {
+        this.html = html;
+        this.baseUri = baseUri;
+        this.text = new StringBuilder(html.length() / 2);
+    }
+
+    /**
+     * Decodes {@code body} with the declared charset, or the one named by a byte order mark or
+     * a {@code <meta>} tag, or UTF-8, and stores the title, text and links in {@code pageData}.
+     */
+    public static void extract(byte[] body, String charset, String baseUri, PageData pageData) {
+        extract(decode(body, charset), baseUri, pageData);
+    }
+
+    public static void extract(String html, String baseUri, PageData pageData) {
+        HtmlExtractor extractor = new HtmlExtractor(html, baseUri);
+        extractor.run();
+        pageData.setText(extractor.text.toString().trim());
+        pageData.setTitle(extractor.title == null ? "" : extractor.title);
+        pageData.setLinks(extractor.links);
+    }
+
+    private void run() {
+        int length = html.length();
+        while(position < length) {
+            int tagStart = html.indexOf('<', position);
+            if(tagStart < 0) {
+                appendText(position, length);
+                return;
+            }
+            if(tagStart > position) {
+                appendText(position, tagStart);
+            }
+            position = tagStart;
+            if(html.startsWith("<!--", position)) {
+                skipPast("-->", position + 4);
+            } else if(position + 1 < length && (html.charAt(position + 1) == '!' || html.charAt(position + 1) == '?')) {
+                skipPast(">", position + 2);
+            } else if(position + 2 < length && html.charAt(position + 1) == '/' && isLetter(html.charAt(position + 2))) {
+                endTag();
+            } else if(position + 1 < length && isLetter(html.charAt(position + 1))) {
+                startTag();
+            } else {
+                appendText(position, ++position);
+            }
+        }
+    }
+
+    private void startTag() {
+        position++;
+        String name = readName();
+        Map<String, String> attributes = readAttributes();
+        if(BLOCKS.contains(name)) {
+            separate();
+        }
+        switch (name) {
+            case "a" -> addLink(attributes.get("href"));
+            case "base" -> setBase(attributes.get("href"));
+            case "title" -> readTitle();
+            case "textarea" -> readPreserved("</textarea");
+            case "pre" -> preDepth++;
+            default -> {
+                if(SKIPPED.contains(name)) {
+                    skipPast("</" + name, position);
+                    skipPast(">", position);
+                }
+            }
+        }
+    }
+
+    private void endTag() {
+        position += 2;
+        String name = readName();
+        skipPast(">", position);
+        if(name.equals("pre") && preDepth > 0) {
+            preDepth--;
+        }
+        if(BLOCKS.contains(name)) {
+            separate();
+        }
+    }
+
+    private void readTitle() {
+        int textStart = text.length();
+        readPreserved("</title");
+        if(title == null) {
+            title = StringUtil.normaliseWhitespace(text.substring(textStart)).trim();
+        }
+        separate();
+    }
+
+    /**
+     * Appends the text up to {@code endTag} with its whitespace, as tags are not parsed there.
+     */
+    private void readPreserved(String endTag) {
+        int end = indexOfIgnoreCase(endTag, position);
+        int textEnd = end < 0 ? html.length() : end;
+        preserveSpace = true;
+        appendText(position, textEnd);
+        preserveSpace = false;
+        position = textEnd;
+        if(end >= 0) {
+            skipPast(">", end);
+        }
+    }
+
+    private String readName() {
+        int start = position;
+        while(position < html.length() && !isNameEnd(html.charAt(position))) {
+            position++;
+        }
+        return html.substring(start, position).toLowerCase(Locale.ROOT);
+    }
+
+    private Map<String, String> readAttributes() {
+        Map<String, String> attributes = null;
+        int length = html.length();
+        while(position < length) {
+            char c = html.charAt(position);
+            if(c == '>') {
+                position++;
+                break;
+            }
+            if(Character.isWhitespace(c) || c == '/') {
+                position++;
+                continue;
+            }
+            int nameStart = position;
+            while(position < length && !isNameEnd(html.charAt(position)) && html.charAt(position) != '=') {
+                position++;
+            }
+            String name = html.substring(nameStart, position).toLowerCase(Locale.ROOT);
+            while(position < length && Character.isWhitespace(html.charAt(position))) {
+                position++;
+            }
+            String value = "";
+            if(position < length && html.charAt(position) == '=') {
+                position++;
+                while(position < length && Character.isWhitespace(html.charAt(position))) {
+                    position++;
+                }
+                value = readValue();
+            }
+            if(name.equals("href")) {
+                if(attributes == null) {
+                    attributes = new HashMap<>(2);
+                }
+                attributes.putIfAbsent(name, value);
+            }
+        }
+        return attributes == null ? Map.of() : attributes;
+    }
+
+    private String readValue() {
+        int length = html.length();
+        if(position >= length) {
+            return "";
+        }
+        char quote = html.charAt(position);
+        int start;
+        int end;
+        if(quote == '"' || quote == '\'') {
+            start = position + 1;
+            end = html.indexOf(quote, start);
+            end = end < 0 ? length : end;
+            position = Math.min(length, end + 1);
+        } else {
+            start = position;
+            while(position < length && !Character.isWhitespace(html.charAt(position)) && html.charAt(position) != '>') {
+                position++;
+            }
+            end = position;
+        }
+        String value = html.substring(start, end);
+        return value.indexOf('&') < 0 ? value : unescape(value);
+    }
+
+    private void addLink(String href) {
+        if(href == null) {
+            return;
+        }
+        String link = resolve(href.trim());
+        if(!link.isEmpty()) {
+            links.add(link);
+        }
+    }
+
+    private void setBase(String href) {
+        if(href != null && !baseSeen) {
+            baseSeen = true;
+            String base = resolve(href.trim());
+            baseUri = base.isEmpty() ? baseUri : base;
+            baseUrl = null;
+        }
+    }
+
+    private String resolve(String href) {
+        try {
+            if(baseUrl == null) {
+                baseUrl = new URI(baseUri).toURL();
+            }
+            return StringUtil.resolve(baseUrl, href).toExternalForm();
+        } catch (URISyntaxException | MalformedURLException | IllegalArgumentException e) {
+            return StringUtil.resolve(baseUri, href);
+        }
+    }
+
+    private void appendText(int start, int end) {
+        for(int i = start; i < end; i++) {
+            char c = html.charAt(i);
+            int semicolon = c == '&' ? referenceEnd(html, i, end) : -1;
+            String decoded = semicolon < 0 ? null : reference(html.substring(i + 1, semicolon));
+            if(decoded == null) {
+                appendChar(c);
+            } else {
+                for(int j = 0; j < decoded.length(); j++) {
+                    appendChar(decoded.charAt(j));
+                }
+                i = semicolon;
+            }
+        }
+    }
+
+    private void appendChar(char c) {
+        boolean preserve = preserveSpace || preDepth > 0;
+        if(!preserve && StringUtil.isActuallyWhitespace(c)) {
+            pendingSpace = true;
+            return;
+        }
+        if(pendingSpace && !text.isEmpty() && text.charAt(text.length() - 1) != ' ') {
+            text.append(' ');
+        }
+        pendingSpace = false;
+        text.append(c);
+    }
+
+    private void separate() {
+        pendingSpace = true;
+    }
+
+    private void skipPast(String marker, int from) {
+        int index = marker.startsWith("</") ? indexOfIgnoreCase(marker, from) : html.indexOf(marker, from);
+        position = index < 0 ? html.length() : index + marker.length();
+    }
+
+    private int indexOfIgnoreCase(String marker, int from) {
+        for(int i = html.indexOf('<', from); i >= 0; i = html.indexOf('<', i + 1)) {
+            if(html.regionMatches(true, i, marker, 0, marker.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Decodes named and numeric character references that end with a semicolon. Jsoup's own
+     * unescaper builds a tokeniser with large buffers per call, which would dominate the
+     * allocations of a page with many text runs.
+     */
+    private static String unescape(String value) {
+        StringBuilder result = new StringBuilder(value.length());
+        int i = 0;
+        while(i < value.length()) {
+            char c = value.charAt(i);
+            int semicolon = c == '&' ? referenceEnd(value, i, value.length()) : -1;
+            if(semicolon > 0) {
+                String decoded = reference(value.substring(i + 1, semicolon));
+                if(decoded != null) {
+                    result.append(decoded);
+                    i = semicolon + 1;
+                    continue;
+                }
+            }
+            result.append(c);
+            i++;
+        }
+        return result.toString();
+    }
+
+    private static int referenceEnd(String source, int ampersand, int end) {
+        for(int i = ampersand + 2; i < Math.min(end, ampersand + 34); i++) {
+            char c = source.charAt(i);
+            if(c == ';') {
+                return i;
+            }
+            if(!Character.isLetterOrDigit(c) && c != '#') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private static String reference(String name) {
+        if(name.charAt(0) != '#') {
+            String value = Entities.getByName(name);
+            return value.isEmpty() ? null : value;
+        }
+        boolean hex = name.length() > 1 && (name.charAt(1) == 'x' || name.charAt(1) == 'X');
+        try {
+            int codePoint = Integer.parseInt(name.substring(hex ? 2 : 1), hex ? 16 : 10);
+            return codePoint > 0 && Character.isValidCodePoint(codePoint) ? Character.toString(codePoint) : "\uFFFD";
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isNameEnd(char c) {
+        return Character.isWhitespace(c) || c == '>' || c == '/';
+    }
+
+    private static String decode(byte[] body, String charset) {
+        int offset = 0;
+        Charset detected = null;
+        if(body.length >= 3 && (body[0] & 0xFF) == 0xEF && (body[1] & 0xFF) == 0xBB && (body[2] & 0xFF) == 0xBF) {
+            offset = 3;
+            detected = StandardCharsets.UTF_8;
+        } else if(charset != null) {
+            detected = Charset.forName(charset);
+        } else {
+            String head = new String(body, 0, Math.min(body.length, CHARSET_SCAN_LENGTH), StandardCharsets.ISO_8859_1);
+            Matcher matcher = META_CHARSET.matcher(head);
+            if(matcher.find()) {
+                try {
+                    detected = Charset.forName(matcher.group(1));
+                } catch (IllegalArgumentException e) {
+                    detected = null;
+                }
+            }
+        }
+        if(detected == null || detected.name().startsWith("UTF-16") || detected.name().startsWith("UTF-32")) {
+            detected = StandardCharsets.UTF_8;
+        }
+        return new String(body, offset, body.length - offset, detected);
+    }
+}
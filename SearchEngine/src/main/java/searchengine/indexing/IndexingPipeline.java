@@ -0,0 +1,141 @@
+package searchengine.indexing;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.config.Config;
+import searchengine.lemma.*;
+import searchengine.metrics.CrawlMetrics;
+import searchengine.model.PageEntity;
+import java.util.*;
+
+@Slf4j
+@Component
+public class IndexingPipeline {
+    private final Config config;
+    private final Lemmatizer lemmatizer;
+    private final CancelFlag cancelFlag;
+    private final PipelineStage<FetchedPage> parseStage;
+    private final PipelineStage<ParsedPage> lemmatizeStage;
+    private final PipelineStage<LemmatizedPage> persistStage;
+    private final Map<String, PipelineStage<?>> stages = new LinkedHashMap<>();
+    private final CrawlMetrics metrics;
+    private CrawlScheduler scheduler;
+
+    public IndexingPipeline(Config config, Lemmatizer lemmatizer, CancelFlag cancelFlag, CrawlMetrics metrics) {
+        this.config = config;
+        this.lemmatizer = lemmatizer;
+        this.cancelFlag = cancelFlag;
+        this.metrics = metrics;
+        int capacity = config.getQueueCapacity();
+        parseStage = new PipelineStage<>("parse", capacity, 1, batch -> batch.forEach(this::parse));
+        lemmatizeStage = new PipelineStage<>("lemmatize", capacity, 1, batch -> batch.forEach(this::lemmatize));
+        persistStage = new PipelineStage<>("persist", capacity, config.getThreshold().intValue(), this::persist);
+        stages.put("parse", parseStage);
+        stages.put("lemmatize", lemmatizeStage);
+        stages.put("persist", persistStage);
+    }
+
+    synchronized void start(CrawlScheduler scheduler) {
+        if(this.scheduler != null) {
+            return;
+        }
+        this.scheduler = scheduler;
+        parseStage.start(threads(config.getParseThreads()));
+        lemmatizeStage.start(threads(config.getLemmatizeThreads()));
+        persistStage.start(threads(config.getPersistThreads()));
+    }
+
+    void fetched(CrawlRequest request, PageData pageData) throws InterruptedException {
+        parseStage.put(new FetchedPage(request, pageData));
+    }
+
+    public Map<String, Integer> getQueueSizes() {
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+        stages.forEach((name, stage) -> sizes.put(name, stage.size()));
+        return sizes;
+    }
+
+    public int getQueueSize(String stage) {
+        PipelineStage<?> pipelineStage = stages.get(stage);
+        return pipelineStage == null ? 0 : pipelineStage.size();
+    }
+
+    private void parse(FetchedPage fetchedPage) {
+        CrawlRequest request = fetchedPage.getRequest();
+        SiteCrawl siteCrawl = request.getSiteCrawl();
+        try {
+            if(cancelFlag.isCancelled() || siteCrawl.isFailed() || Thread.currentThread().isInterrupted()) {
+                siteCrawl.requestDone();
+                return;
+            }
+            long start = System.nanoTime();
+            PageEntity page = siteCrawl.newPage(request.getUrl(), fetchedPage.getPageData());
+            List<String> links = siteCrawl.newLinks(fetchedPage.getPageData());
+            metrics.parsed(System.nanoTime() - start);
+            for(String link : links) {
+                scheduler.schedule(new CrawlRequest(siteCrawl, link, request.getDepth() + 1));
+            }
+            if(siteCrawl.isUnchanged(page)) {
+                siteCrawl.requestDone();
+                return;
+            }
+            lemmatizeStage.put(new ParsedPage(request, page));
+        } catch (InterruptedException e) {
+            siteCrawl.requestDone();
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error(e.getMessage() + " Site: " + siteCrawl.getSite().getName());
+            siteCrawl.requestDone();
+        }
+    }
+
+    private void lemmatize(ParsedPage parsedPage) {
+        SiteCrawl siteCrawl = parsedPage.getRequest().getSiteCrawl();
+        try {
+            if(cancelFlag.isCancelled() || Thread.currentThread().isInterrupted()) {
+                siteCrawl.requestDone();
+                return;
+            }
+            long start = System.nanoTime();
+            Map<String, LemmaOccurrences> lemmas = lemmatizer.analyzeText(parsedPage.getPage().getContent());
+            metrics.lemmatized(System.nanoTime() - start);
+            parsedPage.getPage().setTokenCount(lemmas.values().stream().mapToInt(LemmaOccurrences::getCount).sum());
+            persistStage.put(new LemmatizedPage(parsedPage.getRequest(), parsedPage.getPage(), lemmas));
+        } catch (InterruptedException e) {
+            siteCrawl.requestDone();
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error(e.getMessage() + " Site: " + siteCrawl.getSite().getName());
+            siteCrawl.requestDone();
+        }
+    }
+
+    private void persist(List<LemmatizedPage> batch) {
+        Map<SiteCrawl, List<LemmatizedPage>> bySite = new LinkedHashMap<>();
+        batch.forEach(page -> bySite.computeIfAbsent(page.getRequest().getSiteCrawl(), key -> new ArrayList<>())
+                .add(page));
+
+        bySite.forEach((siteCrawl, pages) -> {
+            try {
+                siteCrawl.savePages(pages);
+            } catch (Exception e) {
+                siteCrawl.persistFailed(e);
+            } finally {
+                pages.forEach(page -> siteCrawl.requestDone());
+            }
+        });
+    }
+
+    private static int threads(Integer configured) {
+        return configured == null || configured <= 0 ?
+                Runtime.getRuntime().availableProcessors() : configured;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        parseStage.stop();
+        lemmatizeStage.stop();
+        persistStage.stop();
+    }
+}
@@ -0,0 +1,13 @@
+package searchengine.indexing;
+
+import lombok.Data;
+import searchengine.lemma.LemmaOccurrences;
+import searchengine.model.PageEntity;
+import java.util.Map;
+
+@Data
+public class LemmatizedPage {
+    private final CrawlRequest request;
+    private final PageEntity page;
+    private final Map<String, LemmaOccurrences> lemmas;
+}
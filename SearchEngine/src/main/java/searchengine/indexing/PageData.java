@@ -1,10 +1,19 @@
 package searchengine.indexing;
 
 import lombok.Data;
-import org.jsoup.nodes.Document;
+import java.net.HttpURLConnection;
+import java.util.List;
 
 @Data
 public class PageData {
-    private Document document;
+    private String title;
+    private String text;
+    private List<String> links = List.of();
     private int statusCode;
+    private String etag;
+    private String lastModified;
+
+    public boolean isNotModified() {
+        return statusCode == HttpURLConnection.HTTP_NOT_MODIFIED;
+    }
 }
@@ -0,0 +1,10 @@
+package searchengine.indexing;
+
+import lombok.Data;
+import searchengine.model.PageEntity;
+
+@Data
+public class ParsedPage {
+    private final CrawlRequest request;
+    private final PageEntity page;
+}
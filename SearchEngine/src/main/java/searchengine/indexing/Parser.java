@@ -1,34 +1,225 @@
 package searchengine.indexing;
 
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.jsoup.*;
-import org.jsoup.nodes.Document;
 import org.springframework.stereotype.Component;
 import searchengine.config.Config;
-import java.io.IOException;
+import java.io.*;
+import java.net.*;
+import java.net.http.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.Flow;
+import java.util.zip.*;
 
+/**
+ * Fetches pages over one shared {@link HttpClient}, which keeps connections alive per host
+ * and speaks HTTP/2 where the server offers it. The content type is checked from the headers,
+ * so bodies of anything but HTML are never downloaded, and HTML bodies are cut at
+ * {@code maxBodySize} bytes, both on the wire and after gzip or deflate decoding.
+ */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class Parser {
+    private static final List<String> HTML_TYPES = List.of("text/html", "application/xhtml+xml");
+
     private final Config config;
+    private final HttpClient client;
+
+    public Parser(Config config) {
+        this.config = config;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(Duration.ofMillis(config.getTimeOut()))
+                .build();
+    }
+
     public PageData getConnection(String url) throws IOException {
+        return getConnection(url, null, null);
+    }
+
+    public PageData getConnection(String url, String etag, String lastModified) throws IOException {
         PageData pageData = new PageData();
-        Document document;
-        Connection.Response response;
-
-        response = Jsoup.connect(url)
-                .ignoreContentType(true)
-                .userAgent(config.getUserAgent())
-                .referrer(config.getReferrer())
-                .timeout(config.getTimeOut())
-                .followRedirects(true)
-                .execute();
-        document = response.parse();
-
-        pageData.setDocument(document);
+        HttpRequest.Builder request = HttpRequest.newBuilder(toUri(url))
+                .timeout(Duration.ofMillis(config.getTimeOut()))
+                .header("User-Agent", config.getUserAgent())
+                .header("Referer", config.getReferrer())
+                .header("Accept", "text/html,application/xhtml+xml;q=0.9,*/*;q=0.1")
+                .header("Accept-Encoding", "gzip, deflate");
+        if(etag != null) {
+            request.header("If-None-Match", etag);
+        }
+        if(lastModified != null) {
+            request.header("If-Modified-Since", lastModified);
+        }
+
+        HttpResponse<byte[]> response = send(request.build(), url);
+        HttpHeaders headers = response.headers();
         pageData.setStatusCode(response.statusCode());
+        pageData.setEtag(headers.firstValue("ETag").orElse(null));
+        pageData.setLastModified(headers.firstValue("Last-Modified").orElse(null));
+        if(pageData.isNotModified()) {
+            return pageData;
+        }
+        if(response.statusCode() < 200 || response.statusCode() >= 300) {
+            throw new HttpStatusException("HTTP error fetching URL", response.statusCode(), url);
+        }
+        String contentType = headers.firstValue("Content-Type").orElse(null);
+        if(!isHtml(contentType)) {
+            throw new UnsupportedMimeTypeException("Unhandled content type", contentType, url);
+        }
+
+        byte[] body = decode(response.body(), headers.firstValue("Content-Encoding").orElse(null));
+        HtmlExtractor.extract(body, charsetOf(contentType), response.uri().toString(), pageData);
         return pageData;
     }
+
+    private HttpResponse<byte[]> send(HttpRequest request, String url) throws IOException {
+        CompletableFuture<HttpResponse<byte[]>> response = client.sendAsync(request, info ->
+                new LimitedBody(info.statusCode() / 100 == 2
+                        && isHtml(info.headers().firstValue("Content-Type").orElse(null)) ? config.getMaxBodySize() : 0));
+        try {
+            return response.get(config.getBodyTimeOut(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            response.cancel(true);
+            throw new SocketTimeoutException("Page not received in " + config.getBodyTimeOut() + " ms: " + url);
+        } catch (InterruptedException e) {
+            response.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while fetching " + url);
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private byte[] decode(byte[] body, String encoding) throws IOException {
+        InputStream input;
+        if(encoding == null || encoding.equalsIgnoreCase("identity")) {
+            return body;
+        } else if(encoding.equalsIgnoreCase("gzip") || encoding.equalsIgnoreCase("x-gzip")) {
+            input = new GZIPInputStream(new ByteArrayInputStream(body));
+        } else if(encoding.equalsIgnoreCase("deflate")) {
+            input = new InflaterInputStream(new ByteArrayInputStream(body));
+        } else {
+            throw new IOException("Unsupported content encoding " + encoding);
+        }
+
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream(Math.min(config.getMaxBodySize(), body.length * 4));
+        byte[] buffer = new byte[8192];
+        try(input) {
+            int read;
+            while(decoded.size() < config.getMaxBodySize()
+                    && (read = input.read(buffer, 0, Math.min(buffer.length, config.getMaxBodySize() - decoded.size()))) > 0) {
+                decoded.write(buffer, 0, read);
+            }
+        } catch (EOFException e) {
+            log.debug("Compressed body ended early, probably cut at the size limit");
+        }
+        return decoded.toByteArray();
+    }
+
+    private static boolean isHtml(String contentType) {
+        if(contentType == null) {
+            return true;
+        }
+        int end = contentType.indexOf(';');
+        String mimeType = (end < 0 ? contentType : contentType.substring(0, end)).trim().toLowerCase(Locale.ROOT);
+        return mimeType.isEmpty() || HTML_TYPES.contains(mimeType);
+    }
+
+    private static String charsetOf(String contentType) {
+        if(contentType == null) {
+            return null;
+        }
+        int start = contentType.toLowerCase(Locale.ROOT).indexOf("charset=");
+        if(start < 0) {
+            return null;
+        }
+        String charset = contentType.substring(start + "charset=".length()).split(";")[0].trim().replace("\"", "");
+        try {
+            return Charset.isSupported(charset) ? charset : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static URI toUri(String url) throws IOException {
+        try {
+            return URI.create(url);
+        } catch (IllegalArgumentException e) {
+            throw new MalformedURLException(e.getMessage() + ": " + url);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        client.close();
+    }
+
+    /**
+     * Collects at most {@code limit} body bytes and cancels the stream after that,
+     * which resets an HTTP/2 stream or closes an HTTP/1.1 connection.
+     */
+    private static class LimitedBody implements HttpResponse.BodySubscriber<byte[]> {
+        private final int limit;
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private final CompletableFuture<byte[]> result = new CompletableFuture<>();
+        private Flow.Subscription subscription;
+
+        private LimitedBody(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public CompletionStage<byte[]> getBody() {
+            return result;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if(limit <= 0) {
+                subscription.cancel();
+                result.complete(new byte[0]);
+                return;
+            }
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            if(result.isDone()) {
+                return;
+            }
+            for(ByteBuffer buffer : buffers) {
+                int length = Math.min(buffer.remaining(), limit - body.size());
+                byte[] bytes = new byte[length];
+                buffer.get(bytes);
+                body.write(bytes, 0, length);
+                if(body.size() >= limit) {
+                    subscription.cancel();
+                    result.complete(body.toByteArray());
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            result.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            result.complete(body.toByteArray());
+        }
+    }
 }
@@ -0,0 +1,74 @@
+package searchengine.indexing;
+
+import lombok.extern.slf4j.Slf4j;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+@Slf4j
+class PipelineStage<T> {
+    private final String name;
+    private final BlockingQueue<T> queue;
+    private final int maxBatch;
+    private final Consumer<List<T>> handler;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean stopped;
+
+    PipelineStage(String name, int capacity, int maxBatch, Consumer<List<T>> handler) {
+        this.name = name;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatch = maxBatch;
+        this.handler = handler;
+    }
+
+    void start(int threads) {
+        for(int i = 0; i < threads; i++) {
+            workers.add(Thread.ofPlatform()
+                    .name(name + "-" + i)
+                    .daemon()
+                    .start(this::run));
+        }
+    }
+
+    /**
+     * Blocks while the queue is full. Throws {@link RejectedExecutionException} once the stage is
+     * stopped, as nothing would take the item any more.
+     */
+    void put(T item) throws InterruptedException {
+        if(stopped) {
+            throw new RejectedExecutionException(String.format("Stage %s is stopped", name));
+        }
+        queue.put(item);
+    }
+
+    int size() {
+        return queue.size();
+    }
+
+    void stop() {
+        stopped = true;
+        workers.forEach(Thread::interrupt);
+    }
+
+    /**
+     * Takes batches until the worker is interrupted. A handler interrupted while passing items on
+     * restores the interrupt flag, which ends the worker after the current batch.
+     */
+    private void run() {
+        List<T> batch = new ArrayList<>();
+        while(!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, maxBatch - 1);
+            try {
+                handler.accept(batch);
+            } catch (Exception e) {
+                log.error(String.format("Stage %s failed: %s", name, e.getMessage()));
+            }
+            batch.clear();
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package searchengine.indexing;
+
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.HttpStatusException;
+import searchengine.model.*;
+import searchengine.repositories.*;
+import searchengine.services.IndexingServiceImpl;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Slf4j
+@RequiredArgsConstructor
+public class SiteCrawl {
+    private final IndexingServiceImpl indexingService;
+    @Getter
+    private final SiteEntity site;
+    private final SiteRepository siteRepository;
+    private final CancelFlag cancelFlag;
+    @Getter
+    private final SiteLemmas lemmas;
+    private final Map<String, PageStateView> known;
+    private final VisitedSet visited = new VisitedSet();
+    private final Set<Integer> revisited = ConcurrentHashMap.newKeySet();
+    private final Queue<PageEntity> revalidated = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger unchanged = new AtomicInteger();
+    private final AtomicInteger pending = new AtomicInteger();
+    @Getter
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    @Getter
+    private volatile boolean failed;
+
+    private static final List<String> WRONG_TYPES;
+    private static final List<Integer> GONE_CODES;
+    private static final String MAIN_PAGE_IS_NOT_AVAILABLE;
+    private static final String PAGES_NOT_SAVED;
+
+    static {
+        WRONG_TYPES = List.of(
+                "pdf", "gif", "zip", "jpg",
+                "jpeg", "png", "tar", "jar",
+                "gz", "svg", "ppt", "pptx", "eps",
+                "xlsx", "doc"
+        );
+        GONE_CODES = List.of(404, 410);
+        MAIN_PAGE_IS_NOT_AVAILABLE = "Ошибка индексации: главная страница сайта не доступна.";
+        PAGES_NOT_SAVED = "Ошибка индексации: не удалось сохранить страницы сайта.";
+    }
+
+    public CrawlRequest root() {
+        visited.add("/");
+        return new CrawlRequest(this, site.getUrl(), 0);
+    }
+
+    /**
+     * The root request followed by every page known from the previous crawl. Pages answered
+     * with 304 Not Modified are not parsed, so their links have to be scheduled up front.
+     */
+    public List<CrawlRequest> seeds() {
+        List<CrawlRequest> seeds = new ArrayList<>();
+        seeds.add(root());
+        for(String path : known.keySet()) {
+            if(visited.add(path)) {
+                seeds.add(new CrawlRequest(this, urlOf(path), 1));
+            }
+        }
+        return seeds;
+    }
+
+    public PageStateView revisit(String url) {
+        PageStateView previous = known.get(indexingService.pathFromRoot(site.getUrl(), url));
+        if(previous != null) {
+            revisited.add(previous.getId());
+        }
+        return previous;
+    }
+
+    public void notModified() {
+        unchanged.incrementAndGet();
+        requestDone();
+    }
+
+    public boolean isUnchanged(PageEntity page) {
+        PageStateView previous = known.get(page.getPath());
+        if(previous == null || !page.getContentHash().equals(previous.getContentHash())) {
+            return false;
+        }
+        if(!Objects.equals(page.getEtag(), previous.getEtag())
+                || !Objects.equals(page.getLastModified(), previous.getLastModified())) {
+            PageEntity validators = new PageEntity();
+            validators.setId(page.getId());
+            validators.setEtag(page.getEtag());
+            validators.setLastModified(page.getLastModified());
+            revalidated.add(validators);
+        }
+        unchanged.incrementAndGet();
+        return true;
+    }
+
+    public int getUnchangedCount() {
+        return unchanged.get();
+    }
+
+    public List<PageEntity> drainRevalidated() {
+        List<PageEntity> pages = new ArrayList<>();
+        for(PageEntity page = revalidated.poll(); page != null; page = revalidated.poll()) {
+            pages.add(page);
+        }
+        return pages;
+    }
+
+    public List<Integer> getVanishedPageIds() {
+        return known.values().stream()
+                .map(PageStateView::getId)
+                .filter(id -> !revisited.contains(id))
+                .toList();
+    }
+
+    public void requestScheduled() {
+        pending.incrementAndGet();
+    }
+
+    public int getPending() {
+        return pending.get();
+    }
+
+    public void requestDone() {
+        if(pending.decrementAndGet() == 0) {
+            completion.complete(null);
+        }
+    }
+
+    public void fetchFailed(CrawlRequest request, Exception e) {
+        log.error(e.getMessage() + " Site: " + site.getName());
+        if(e instanceof HttpStatusException statusException && GONE_CODES.contains(statusException.getStatusCode())) {
+            PageStateView previous = known.get(indexingService.pathFromRoot(site.getUrl(), request.getUrl()));
+            if(previous != null) {
+                revisited.remove(previous.getId());
+            }
+        }
+        if(request.getDepth() == 0) {
+            fail(MAIN_PAGE_IS_NOT_AVAILABLE);
+        }
+        requestDone();
+    }
+
+    /**
+     * A batch of pages could not be stored, so the site is incomplete: it is marked FAILED, and
+     * a shadow generation is discarded instead of being swapped in. No further pages are stored.
+     */
+    public void persistFailed(Exception e) {
+        log.error("Saving pages failed: " + e.getMessage() + " Site: " + site.getName());
+        fail(PAGES_NOT_SAVED);
+    }
+
+    public PageEntity newPage(String url, PageData pageData) {
+        String content = pageData.getText();
+        String title = pageData.getTitle();
+        PageEntity page = new PageEntity();
+        title = (title == null || title.isBlank()) ? content.substring(0, Math.min(60, content.length()))
+                : title;
+        page.setSite(site);
+        page.setCode(pageData.getStatusCode());
+        page.setTitle(title);
+        page.setContent(content);
+        page.setPath(indexingService.pathFromRoot(site.getUrl(), url));
+        page.setEtag(pageData.getEtag());
+        page.setLastModified(pageData.getLastModified());
+        page.setContentHash(ContentHash.of(title, content));
+        PageStateView previous = known.get(page.getPath());
+        if(previous != null) {
+            page.setId(previous.getId());
+        }
+        log.debug("New page, path: " + page.getPath());
+        return page;
+    }
+
+    public List<String> newLinks(PageData pageData) {
+        List<String> links = new ArrayList<>();
+        for(String reference : pageData.getLinks()) {
+            if(checkUrl(reference)) {
+                links.add(reference);
+            }
+        }
+        return links;
+    }
+
+    public void savePages(List<LemmatizedPage> pages) {
+        if(cancelFlag.isCancelled() || failed) return;
+        indexingService.savePagesData(pages, site, lemmas);
+        updateSiteStatusTime();
+    }
+
+    private void fail(String error) {
+        synchronized(this) {
+            if(failed) {
+                return;
+            }
+            failed = true;
+        }
+        SiteEntity siteEntity = siteRepository.findById(site.getId()).orElseThrow();
+        siteEntity.setStatusTime(Instant.now());
+        siteEntity.setLastError(error);
+        siteEntity.setStatus(Status.FAILED);
+        siteRepository.save(siteEntity);
+    }
+
+    private void updateSiteStatusTime() {
+        SiteEntity siteEntity = siteRepository.findById(site.getId()).orElseThrow();
+        siteEntity.setStatusTime(Instant.now());
+        siteRepository.saveAndFlush(siteEntity);
+    }
+
+    private String urlOf(String path) {
+        if(path.equals("/")) {
+            return site.getUrl();
+        }
+        String segment = path.substring(path.lastIndexOf('/', path.length() - 2) + 1, path.length() - 1);
+        return site.getUrl() + (segment.contains(".") ? path.substring(0, path.length() - 1) : path);
+    }
+
+    private boolean checkUrl(String url) {
+        String type = url.substring(url.lastIndexOf(".")+1)
+                .replaceAll("/", "")
+                .toLowerCase();
+        if(!url.startsWith(site.getUrl())) {
+            return false;
+        }
+        if(url.contains("#")) {
+            return false;
+        }
+        if(WRONG_TYPES.contains(type)) {
+            return false;
+        }
+        return visited.add(indexingService.pathFromRoot(site.getUrl(), url));
+    }
+}
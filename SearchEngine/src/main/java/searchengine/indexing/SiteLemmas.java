@@ -0,0 +1,73 @@
+package searchengine.indexing;
+
+import searchengine.model.*;
+import searchengine.repositories.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class SiteLemmas {
+    private final SiteEntity site;
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public SiteLemmas(SiteEntity site) {
+        this.site = site;
+    }
+
+    public void seed(int id, String lemma) {
+        LemmaEntity entity = new LemmaEntity();
+        entity.setId(id);
+        entity.setSite(site);
+        entity.setLemma(lemma);
+        counters.putIfAbsent(lemma, new Counter(entity));
+    }
+
+    public void count(Collection<String> pageLemmas) {
+        pageLemmas.forEach(lemma -> counter(lemma).frequency.increment());
+    }
+
+    public void uncount(Collection<String> pageLemmas) {
+        pageLemmas.forEach(lemma -> counter(lemma).frequency.decrement());
+    }
+
+    public Map<String, LemmaEntity> drain(Collection<String> lemmas, IdAllocator idAllocator, List<LemmaDelta> deltas) {
+        Map<String, LemmaEntity> entities = new HashMap<>();
+        List<Counter> batch = lemmas.stream().map(this::counter).toList();
+        assignIds(batch, idAllocator);
+        for(Counter counter : batch) {
+            LemmaEntity entity = counter.entity;
+            deltas.add(new LemmaDelta(entity.getId(), site.getId(), entity.getLemma(), counter.frequency.sumThenReset()));
+            entities.put(entity.getLemma(), entity);
+        }
+        return entities;
+    }
+
+    private Counter counter(String lemma) {
+        return counters.computeIfAbsent(lemma, key -> {
+            LemmaEntity entity = new LemmaEntity();
+            entity.setSite(site);
+            entity.setLemma(key);
+            return new Counter(entity);
+        });
+    }
+
+    private synchronized void assignIds(List<Counter> batch, IdAllocator idAllocator) {
+        List<Counter> unassigned = batch.stream().filter(counter -> counter.entity.getId() == null).toList();
+        if(unassigned.isEmpty()) {
+            return;
+        }
+        int id = idAllocator.allocate("lemma", unassigned.size());
+        for(Counter counter : unassigned) {
+            counter.entity.setId(id++);
+        }
+    }
+
+    private static class Counter {
+        private final LemmaEntity entity;
+        private final LongAdder frequency = new LongAdder();
+
+        private Counter(LemmaEntity entity) {
+            this.entity = entity;
+        }
+    }
+}
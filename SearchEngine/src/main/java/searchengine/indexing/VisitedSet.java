@@ -0,0 +1,143 @@
+package searchengine.indexing;
+
+import java.lang.invoke.*;
+
+/**
+ * Concurrent set of visited URL paths that keeps only a 64-bit fingerprint of each path
+ * in primitive open-addressing tables, about 11-21 bytes per path instead of a String,
+ * a map node and a table slot. Two paths share a fingerprint with a probability of about
+ * n²/2⁶⁵, e.g. one in 400 000 crawls of ten million pages; the later one is then skipped.
+ * <p>
+ * The set is split into {@value #SEGMENTS} segments by the high fingerprint bits. Lookups
+ * of already seen paths, the common case for links, take no lock; inserts lock one segment.
+ */
+public class VisitedSet {
+    private static final int SEGMENTS = 64;
+    private static final int MIN_CAPACITY = 16;
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    public VisitedSet() {
+        this(SEGMENTS * MIN_CAPACITY);
+    }
+
+    public VisitedSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, expectedSize / SEGMENTS * 2) - 1) << 1;
+        for(int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(capacity);
+        }
+    }
+
+    /**
+     * Returns true if the path was not in the set before.
+     */
+    public boolean add(CharSequence path) {
+        long fingerprint = fingerprint(path);
+        Segment segment = segmentFor(fingerprint);
+        return !segment.contains(fingerprint) && segment.add(fingerprint);
+    }
+
+    public boolean contains(CharSequence path) {
+        long fingerprint = fingerprint(path);
+        return segmentFor(fingerprint).contains(fingerprint);
+    }
+
+    public int size() {
+        int size = 0;
+        for(Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public long sizeInBytes() {
+        long bytes = 0;
+        for(Segment segment : segments) {
+            bytes += (long) segment.slots.length * Long.BYTES;
+        }
+        return bytes;
+    }
+
+    static long fingerprint(CharSequence path) {
+        long hash = 0xcbf29ce484222325L;
+        for(int i = 0; i < path.length(); i++) {
+            hash = (hash ^ path.charAt(i)) * 0x100000001b3L;
+        }
+        hash ^= path.length();
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == 0 ? 1 : hash;
+    }
+
+    private Segment segmentFor(long fingerprint) {
+        return segments[(int) (fingerprint >>> 58)];
+    }
+
+    private static final class Segment {
+        private volatile long[] slots;
+        private int size;
+
+        private Segment(int capacity) {
+            slots = new long[capacity];
+        }
+
+        private boolean contains(long fingerprint) {
+            long[] table = slots;
+            int mask = table.length - 1;
+            for(int i = (int) fingerprint & mask; ; i = (i + 1) & mask) {
+                long slot = (long) SLOTS.getAcquire(table, i);
+                if(slot == fingerprint) {
+                    return true;
+                }
+                if(slot == 0) {
+                    return false;
+                }
+            }
+        }
+
+        private synchronized boolean add(long fingerprint) {
+            long[] table = slots;
+            if((size + 1) * 4L > table.length * 3L) {
+                table = resize(table);
+            }
+            if(!insert(table, fingerprint)) {
+                return false;
+            }
+            size++;
+            return true;
+        }
+
+        private synchronized int size() {
+            return size;
+        }
+
+        private long[] resize(long[] table) {
+            long[] resized = new long[table.length << 1];
+            for(long slot : table) {
+                if(slot != 0) {
+                    insert(resized, slot);
+                }
+            }
+            slots = resized;
+            return resized;
+        }
+
+        private static boolean insert(long[] table, long fingerprint) {
+            int mask = table.length - 1;
+            for(int i = (int) fingerprint & mask; ; i = (i + 1) & mask) {
+                long slot = (long) SLOTS.getAcquire(table, i);
+                if(slot == fingerprint) {
+                    return false;
+                }
+                if(slot == 0) {
+                    SLOTS.setRelease(table, i, fingerprint);
+                    return true;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package searchengine.lemma;
+
+import java.util.Arrays;
+
+/**
+ * Character offsets and word positions of every occurrence of one lemma in a page text,
+ * in ascending order. Both are persisted as varint-encoded deltas: offsets let snippets be cut
+ * without lemmatizing the page again, positions back phrase and proximity queries.
+ */
+public class LemmaOccurrences {
+    private static final int[] NONE = new int[0];
+
+    private int[] offsets = new int[4];
+    private int[] positions = new int[4];
+    private int count;
+
+    void add(int offset, int position) {
+        if(count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count << 1);
+            positions = Arrays.copyOf(positions, count << 1);
+        }
+        offsets[count] = offset;
+        positions[count++] = position;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int[] getOffsets() {
+        return Arrays.copyOf(offsets, count);
+    }
+
+    public int[] getPositions() {
+        return Arrays.copyOf(positions, count);
+    }
+
+    public byte[] encodeOffsets() {
+        return encode(offsets, count);
+    }
+
+    public byte[] encodePositions() {
+        return encode(positions, count);
+    }
+
+    public static int[] decode(byte[] data) {
+        if(data == null || data.length == 0) {
+            return NONE;
+        }
+        int[] values = new int[data.length];
+        int count = 0;
+        int position = 0;
+        int previous = 0;
+        while(position < data.length) {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while(b < 0);
+            previous += value;
+            values[count++] = previous;
+        }
+        return Arrays.copyOf(values, count);
+    }
+
+    private static byte[] encode(int[] values, int count) {
+        byte[] target = new byte[count * 5];
+        int position = 0;
+        int previous = 0;
+        for(int i = 0; i < count; i++) {
+            int value = values[i] - previous;
+            while((value & ~0x7F) != 0) {
+                target[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            target[position++] = (byte) value;
+            previous = values[i];
+        }
+        return Arrays.copyOf(target, position);
+    }
+}
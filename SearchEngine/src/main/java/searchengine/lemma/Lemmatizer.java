@@ -8,6 +8,7 @@ import org.apache.lucene.morphology.russian.RussianLuceneMorphology;
 import org.springframework.stereotype.Component;
 import java.io.IOException;
 import java.util.*;
+import java.util.regex.Pattern;
 
 @Slf4j
 @AllArgsConstructor
@@ -15,14 +16,18 @@ import java.util.*;
 public class Lemmatizer {
     private static final LuceneMorphology RUS_LUCENE_MORPHOLOGY;
     private static final LuceneMorphology ENG_LUCENE_MORPHOLOGY;
-    private static final String WORD_TYPE_REGEX;
+    private static final Pattern WORD_TYPE_PATTERN;
     private static final String[] PARTICLES_NAMES;
     private static final int MAX_WORD_LENGTH;
+    private static final WordFormCache RUS_WORD_FORMS;
+    private static final WordFormCache ENG_WORD_FORMS;
 
     static {
-        WORD_TYPE_REGEX = "\\W\\w&&[^а-яА-Я\\s]";
+        WORD_TYPE_PATTERN = Pattern.compile("\\W\\w&&[^а-яА-Я\\s]");
         PARTICLES_NAMES = new String[]{"МЕЖД", "ПРЕДЛ", "СОЮЗ", "ЧАСТ"};
         MAX_WORD_LENGTH = 40;
+        RUS_WORD_FORMS = new WordFormCache(200_000);
+        ENG_WORD_FORMS = new WordFormCache(100_000);
         try {
             RUS_LUCENE_MORPHOLOGY = new RussianLuceneMorphology();
             ENG_LUCENE_MORPHOLOGY = new EnglishLuceneMorphology();
@@ -33,53 +38,72 @@ public class Lemmatizer {
     }
 
     public Map<String, Integer> lemmatizeText(String text) {
-        String[] rusWords = filterWordsByRegex(text, "[^а-я\\s]");
-        String[] engWords = filterWordsByRegex(text, "[^a-z\\s]");
         HashMap<String, Integer> lemmas = new HashMap<>();
+        forEachLemma(text, (lemma, offset, position) -> lemmas.merge(lemma, 1, Integer::sum));
+        return lemmas;
+    }
 
-        makeLemmas(rusWords, lemmas, RUS_LUCENE_MORPHOLOGY);
-        makeLemmas(engWords, lemmas, ENG_LUCENE_MORPHOLOGY);
-
+    public Map<String, LemmaOccurrences> analyzeText(String text) {
+        HashMap<String, LemmaOccurrences> lemmas = new HashMap<>();
+        forEachLemma(text, (lemma, offset, position) ->
+                lemmas.computeIfAbsent(lemma, key -> new LemmaOccurrences()).add(offset, position));
         return lemmas;
     }
 
-    private void makeLemmas(String[] words, HashMap<String, Integer> lemmas, LuceneMorphology luceneMorphology) {
-        for(String word : words) {
+    private void forEachLemma(String text, LemmaConsumer consumer) {
+        int[] position = new int[1];
+        WordTokenizer.tokenize(text, (word, cyrillic, start, end) -> {
+            int wordPosition = position[0]++;
             if(word.length() > MAX_WORD_LENGTH) {
-                continue;
-            }
-            if(word.isBlank()) {
-                continue;
-            }
-            if(!isCorrectWordForm(word, luceneMorphology)) {
-                continue;
+                return;
             }
-
-            List<String> wordBaseForms = luceneMorphology.getMorphInfo(word);
-            if(isWordBaseParticle(wordBaseForms)) {
-                continue;
+            WordForm wordForm = wordForm(word, cyrillic);
+            if(wordForm.isLemma()) {
+                consumer.accept(wordForm.normalForm(), start, wordPosition);
             }
+        });
+    }
 
-            List<String> normalForms = luceneMorphology.getNormalForms(word);
-            if(normalForms.isEmpty()) {
-                continue;
+    public String getNormalForm(String word) {
+        String[] found = new String[2];
+        WordTokenizer.tokenize(word, (token, cyrillic, start, end) -> {
+            int index = cyrillic ? 0 : 1;
+            if(found[index] == null) {
+                found[index] = token;
             }
+        });
 
-            String normalWord = normalForms.get(0);
+        if(found[0] != null) {
+            return normalForm(found[0], true);
+        } else if(found[1] != null) {
+            return normalForm(found[1], false);
+        }
+        return word;
+    }
 
-            if(lemmas.containsKey(normalWord)) {
-                lemmas.put(normalWord, lemmas.get(normalWord) + 1);
-            } else {
-                lemmas.put(normalWord, 1);
-            }
+    private String normalForm(String word, boolean cyrillic) {
+        if(word.length() > MAX_WORD_LENGTH) {
+            LuceneMorphology luceneMorphology = cyrillic ? RUS_LUCENE_MORPHOLOGY : ENG_LUCENE_MORPHOLOGY;
+            return luceneMorphology.getNormalForms(word).get(0);
         }
+        String normalForm = wordForm(word, cyrillic).normalForm();
+        return normalForm == null ? word : normalForm;
     }
 
-    public String[] filterWordsByRegex(String text, String regex) {
-        return text.toLowerCase()
-                .replaceAll(regex, "")
-                .trim()
-                .split("\\s+");
+    private WordForm wordForm(String word, boolean cyrillic) {
+        return cyrillic ?
+                RUS_WORD_FORMS.get(word, key -> analyze(key, RUS_LUCENE_MORPHOLOGY)) :
+                ENG_WORD_FORMS.get(word, key -> analyze(key, ENG_LUCENE_MORPHOLOGY));
+    }
+
+    private WordForm analyze(String word, LuceneMorphology luceneMorphology) {
+        List<String> wordInfo = luceneMorphology.getMorphInfo(word);
+        List<String> normalForms = luceneMorphology.getNormalForms(word);
+        return new WordForm(
+                normalForms.isEmpty() ? null : normalForms.get(0),
+                isWordBaseParticle(wordInfo),
+                isCorrectWordForm(wordInfo)
+        );
     }
 
     private boolean isWordBaseParticle(List<String> wordBaseForms) {
@@ -95,25 +119,17 @@ public class Lemmatizer {
         return false;
     }
 
-    private boolean isCorrectWordForm(String word, LuceneMorphology luceneMorphology) {
-        List<String> wordInfo = luceneMorphology.getMorphInfo(word);
+    private boolean isCorrectWordForm(List<String> wordInfo) {
         for(String morphInfo : wordInfo) {
-            if(morphInfo.matches(WORD_TYPE_REGEX)) {
+            if(WORD_TYPE_PATTERN.matcher(morphInfo).matches()) {
                 return false;
             }
         }
         return true;
     }
 
-    public String getNormalForm(String word) {
-        String rusWord = word.replaceAll("[^А-Яа-я]", "").toLowerCase();
-        String engWord = word.replaceAll("[^A-Za-z]", "").toLowerCase();
-
-        if(!rusWord.isBlank()) {
-            return RUS_LUCENE_MORPHOLOGY.getNormalForms(rusWord).get(0);
-        } else if (!engWord.isBlank()) {
-            return ENG_LUCENE_MORPHOLOGY.getNormalForms(engWord).get(0);
-        }
-        return word;
+    @FunctionalInterface
+    private interface LemmaConsumer {
+        void accept(String lemma, int offset, int position);
     }
 }
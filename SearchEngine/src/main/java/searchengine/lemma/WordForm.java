@@ -0,0 +1,7 @@
+package searchengine.lemma;
+
+record WordForm(String normalForm, boolean particle, boolean valid) {
+    boolean isLemma() {
+        return valid && !particle && normalForm != null;
+    }
+}
@@ -0,0 +1,40 @@
+package searchengine.lemma;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+class WordFormCache {
+    private final int generationSize;
+    private volatile Map<String, WordForm> current = new ConcurrentHashMap<>();
+    private volatile Map<String, WordForm> previous = new ConcurrentHashMap<>();
+
+    WordFormCache(int capacity) {
+        this.generationSize = Math.max(1, capacity / 2);
+    }
+
+    WordForm get(String word, Function<String, WordForm> loader) {
+        Map<String, WordForm> generation = current;
+        WordForm wordForm = generation.get(word);
+        if(wordForm != null) {
+            return wordForm;
+        }
+
+        wordForm = previous.get(word);
+        if(wordForm == null) {
+            wordForm = loader.apply(word);
+        }
+        generation.put(word, wordForm);
+        if(generation.size() > generationSize) {
+            rotate(generation);
+        }
+        return wordForm;
+    }
+
+    private synchronized void rotate(Map<String, WordForm> full) {
+        if(current == full) {
+            previous = full;
+            current = new ConcurrentHashMap<>();
+        }
+    }
+}
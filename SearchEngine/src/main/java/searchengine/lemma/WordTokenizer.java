@@ -0,0 +1,68 @@
+package searchengine.lemma;
+
+import java.util.Arrays;
+
+public final class WordTokenizer {
+    private static final int NONE = 0;
+    private static final int CYRILLIC = 1;
+    private static final int LATIN = 2;
+
+    private WordTokenizer() {
+    }
+
+    public static void tokenize(CharSequence text, TokenConsumer consumer) {
+        char[] buffer = new char[64];
+        int length = 0;
+        int type = NONE;
+        int start = 0;
+
+        for(int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? normalize(text.charAt(i)) : ' ';
+            int charType = charType(c);
+
+            if(charType != type && type != NONE) {
+                consumer.accept(new String(buffer, 0, length), type == CYRILLIC, start, i);
+                length = 0;
+            }
+            if(charType != NONE) {
+                if(length == 0) {
+                    start = i;
+                }
+                if(length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, length * 2);
+                }
+                buffer[length++] = c;
+            }
+            type = charType;
+        }
+    }
+
+    /**
+     * Returns the end of the word that {@link #tokenize} reports as starting at {@code start},
+     * or {@code start} if no word starts there.
+     */
+    public static int tokenEnd(CharSequence text, int start) {
+        int type = start < text.length() ? charType(normalize(text.charAt(start))) : NONE;
+        int end = start;
+        while(type != NONE && end < text.length() && charType(normalize(text.charAt(end))) == type) {
+            end++;
+        }
+        return end;
+    }
+
+    private static char normalize(char c) {
+        c = Character.toLowerCase(c);
+        return c == 'ё' ? 'е' : c;
+    }
+
+    private static int charType(char c) {
+        return (c >= 'а' && c <= 'я') ? CYRILLIC
+                : (c >= 'a' && c <= 'z') ? LATIN
+                : NONE;
+    }
+
+    @FunctionalInterface
+    public interface TokenConsumer {
+        void accept(String word, boolean cyrillic, int start, int end);
+    }
+}
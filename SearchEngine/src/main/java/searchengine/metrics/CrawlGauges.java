@@ -0,0 +1,36 @@
+package searchengine.metrics;
+
+import io.micrometer.core.instrument.*;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import searchengine.indexing.*;
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+public class CrawlGauges implements MeterBinder {
+    private final CrawlScheduler crawlScheduler;
+    private final IndexingPipeline pipeline;
+    private final List<SiteCrawl> crawls;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("crawler.frontier", crawlScheduler, CrawlScheduler::getQueuedCount)
+                .description("Links waiting in the per-host fetch queues")
+                .register(registry);
+        Gauge.builder("crawler.fetches.active", crawlScheduler, CrawlScheduler::getActiveFetches)
+                .description("Fetches currently waiting for a response")
+                .register(registry);
+        Gauge.builder("crawler.pages.in_flight", crawls,
+                        siteCrawls -> siteCrawls.stream().mapToInt(SiteCrawl::getPending).sum())
+                .description("Pages scheduled but not yet written or dropped")
+                .register(registry);
+        for(String stage : pipeline.getQueueSizes().keySet()) {
+            Gauge.builder("crawler.stage.queue", pipeline, indexingPipeline -> indexingPipeline.getQueueSize(stage))
+                    .description("Pages waiting for a pipeline stage")
+                    .tag("stage", stage)
+                    .register(registry);
+        }
+    }
+}
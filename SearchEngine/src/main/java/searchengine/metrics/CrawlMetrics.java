@@ -0,0 +1,85 @@
+package searchengine.metrics;
+
+import io.micrometer.core.instrument.*;
+import org.springframework.stereotype.Component;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Crawl meters. All of them are registered up front, or once per status code,
+ * so recording on the crawl path does not look anything up or allocate. Fetch timers of
+ * statuses seen for the first time are published through an atomic array, as any crawl thread
+ * may register one.
+ */
+@Component
+public class CrawlMetrics {
+    private static final int MAX_STATUS = 600;
+
+    private final MeterRegistry registry;
+    private final AtomicReferenceArray<Timer> fetchByStatus = new AtomicReferenceArray<>(MAX_STATUS);
+    private final Timer fetchFailed;
+    private final Timer parse;
+    private final Timer lemmatize;
+    private final Timer flush;
+    private final DistributionSummary flushBatch;
+
+    public CrawlMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.fetchFailed = fetchTimer("error");
+        this.parse = Timer.builder("crawler.parse")
+                .description("Time to parse a fetched page and extract its links")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.lemmatize = Timer.builder("crawler.lemmatize")
+                .description("Time to lemmatize a page")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.flush = Timer.builder("crawler.flush")
+                .description("Time to write a batch of pages, lemmas and index rows")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.flushBatch = DistributionSummary.builder("crawler.flush.batch")
+                .description("Pages written per batch")
+                .baseUnit("pages")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    public void fetched(int status, long nanos) {
+        if(status < 0 || status >= MAX_STATUS) {
+            fetchFailed.record(nanos, TimeUnit.NANOSECONDS);
+            return;
+        }
+        Timer timer = fetchByStatus.get(status);
+        if(timer == null) {
+            fetchByStatus.compareAndSet(status, null, fetchTimer(Integer.toString(status)));
+            timer = fetchByStatus.get(status);
+        }
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void fetchFailed(long nanos) {
+        fetchFailed.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void parsed(long nanos) {
+        parse.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void lemmatized(long nanos) {
+        lemmatize.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void flushed(int pages, long nanos) {
+        flush.record(nanos, TimeUnit.NANOSECONDS);
+        flushBatch.record(pages);
+    }
+
+    private Timer fetchTimer(String status) {
+        return Timer.builder("crawler.fetch")
+                .description("Page fetch latency by response status")
+                .tag("status", status)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
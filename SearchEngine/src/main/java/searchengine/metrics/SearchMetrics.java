@@ -0,0 +1,51 @@
+package searchengine.metrics;
+
+import io.micrometer.core.instrument.*;
+import org.springframework.stereotype.Component;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search latency, in total and per phase, and the number of site searches cut off by the deadline.
+ * {@code POSITIONS}, {@code INTERSECT} and {@code SCORE} are measured inside each site search,
+ * so time waiting for a search thread is in none of them; {@code TOP_K} is the selection of the
+ * requested page from the merged candidates.
+ */
+@Component
+public class SearchMetrics {
+    public enum Phase {
+        LEMMATIZE, LOOKUP, POSITIONS, INTERSECT, SCORE, TOP_K, SNIPPET
+    }
+
+    private final Timer total;
+    private final Timer[] phases = new Timer[Phase.values().length];
+    private final Counter timeouts;
+
+    public SearchMetrics(MeterRegistry registry) {
+        this.total = Timer.builder("search.latency")
+                .description("Search request latency")
+                .publishPercentileHistogram()
+                .register(registry);
+        for(Phase phase : Phase.values()) {
+            phases[phase.ordinal()] = Timer.builder("search.phase")
+                    .description("Time spent in one phase of a search request")
+                    .tag("phase", phase.name().toLowerCase())
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+        this.timeouts = Counter.builder("search.site.timeouts")
+                .description("Site searches that missed the request deadline")
+                .register(registry);
+    }
+
+    public void searched(long nanos) {
+        total.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void record(Phase phase, long nanos) {
+        phases[phase.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void timedOut() {
+        timeouts.increment();
+    }
+}
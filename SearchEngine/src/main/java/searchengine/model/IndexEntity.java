@@ -22,4 +22,12 @@ public class IndexEntity {
 
     @Column(name = "`rank`")
     private Double rank;
+
+    @Basic(fetch = FetchType.LAZY)
+    @Column(name = "offsets")
+    private byte[] offsets;
+
+    @Basic(fetch = FetchType.LAZY)
+    @Column(name = "positions")
+    private byte[] positions;
 }
@@ -25,8 +25,4 @@ public class LemmaEntity {
 
     @OneToMany(mappedBy = "lemma", fetch = FetchType.LAZY)
     private List<IndexEntity> indexes;
-
-    public synchronized void incrementFrequency() {
-        frequency++;
-    }
 }
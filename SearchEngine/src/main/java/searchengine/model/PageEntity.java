@@ -26,9 +26,22 @@ public class PageEntity {
     @Column(name = "title")
     private String title;
 
+    @Basic(fetch = FetchType.LAZY)
     @Column(name = "content")
     private String content;
 
+    @Column(name = "token_count")
+    private Integer tokenCount;
+
+    @Column(name = "etag")
+    private String etag;
+
+    @Column(name = "last_modified")
+    private String lastModified;
+
+    @Column(name = "content_hash")
+    private String contentHash;
+
     @OneToMany(mappedBy = "page", cascade = CascadeType.REMOVE, fetch = FetchType.LAZY)
     private List<IndexEntity> indexes;
 }
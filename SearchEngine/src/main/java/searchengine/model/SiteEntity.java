@@ -30,6 +30,9 @@ public class SiteEntity {
     @Column(name = "name")
     private String name;
 
+    @Column(name = "live")
+    private Boolean live;
+
     @OneToMany(mappedBy = "site", fetch = FetchType.LAZY)
     private List<PageEntity> pages;
 
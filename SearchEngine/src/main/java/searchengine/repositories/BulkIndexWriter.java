@@ -0,0 +1,109 @@
+package searchengine.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import searchengine.config.Config;
+import searchengine.model.*;
+import java.util.*;
+import java.util.function.BiConsumer;
+
+@Repository
+@RequiredArgsConstructor
+public class BulkIndexWriter {
+    private final JdbcTemplate jdbcTemplate;
+    private final IdAllocator idAllocator;
+    private final Config config;
+
+    private static final String INSERT_PAGE_SQL;
+    private static final String UPDATE_PAGE_SQL;
+    private static final String UPDATE_VALIDATORS_SQL;
+    private static final String UPSERT_LEMMA_SQL;
+    private static final String INSERT_INDEX_SQL;
+
+    static {
+        INSERT_PAGE_SQL = "INSERT INTO `page` (`id`, `site_id`, `path`, `code`, `title`, `content`, `token_count`, " +
+                "`etag`, `last_modified`, `content_hash`) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        UPDATE_PAGE_SQL = "UPDATE `page` SET `code` = ?, `title` = ?, `content` = ?, `token_count` = ?, " +
+                "`etag` = ?, `last_modified` = ?, `content_hash` = ? WHERE `id` = ?";
+        UPDATE_VALIDATORS_SQL = "UPDATE `page` SET `etag` = ?, `last_modified` = ? WHERE `id` = ?";
+        UPSERT_LEMMA_SQL = "INSERT INTO `lemma` (`id`, `site_id`, `lemma`, `frequency`) VALUES (?, ?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE `frequency` = `frequency` + VALUES(`frequency`)";
+        INSERT_INDEX_SQL = "INSERT INTO `index` (`id`, `page_id`, `lemma_id`, `rank`, `offsets`, `positions`) " +
+                "VALUES (?, ?, ?, ?, ?, ?)";
+    }
+
+    @Transactional
+    public void insertPages(List<PageEntity> pages) {
+        assignIds("page", pages.stream().filter(page -> page.getId() == null).toList(), PageEntity::setId);
+        jdbcTemplate.batchUpdate(INSERT_PAGE_SQL, pages, config.getBulkBatchSize(), (statement, page) -> {
+            statement.setInt(1, page.getId());
+            statement.setInt(2, page.getSite().getId());
+            statement.setString(3, page.getPath());
+            statement.setInt(4, page.getCode());
+            statement.setString(5, page.getTitle());
+            statement.setString(6, page.getContent());
+            statement.setInt(7, page.getTokenCount() == null ? 0 : page.getTokenCount());
+            statement.setString(8, page.getEtag());
+            statement.setString(9, page.getLastModified());
+            statement.setString(10, page.getContentHash());
+        });
+    }
+
+    @Transactional
+    public void updatePages(List<PageEntity> pages) {
+        jdbcTemplate.batchUpdate(UPDATE_PAGE_SQL, pages, config.getBulkBatchSize(), (statement, page) -> {
+            statement.setInt(1, page.getCode());
+            statement.setString(2, page.getTitle());
+            statement.setString(3, page.getContent());
+            statement.setInt(4, page.getTokenCount() == null ? 0 : page.getTokenCount());
+            statement.setString(5, page.getEtag());
+            statement.setString(6, page.getLastModified());
+            statement.setString(7, page.getContentHash());
+            statement.setInt(8, page.getId());
+        });
+    }
+
+    @Transactional
+    public void updateValidators(List<PageEntity> pages) {
+        jdbcTemplate.batchUpdate(UPDATE_VALIDATORS_SQL, pages, config.getBulkBatchSize(), (statement, page) -> {
+            statement.setString(1, page.getEtag());
+            statement.setString(2, page.getLastModified());
+            statement.setInt(3, page.getId());
+        });
+    }
+
+    @Transactional
+    public void upsertLemmas(List<LemmaDelta> deltas) {
+        jdbcTemplate.batchUpdate(UPSERT_LEMMA_SQL, deltas, config.getBulkBatchSize(), (statement, delta) -> {
+            statement.setInt(1, delta.id());
+            statement.setInt(2, delta.siteId());
+            statement.setString(3, delta.lemma());
+            statement.setLong(4, delta.delta());
+        });
+    }
+
+    @Transactional
+    public void insertIndexes(List<IndexEntity> indexes) {
+        assignIds("index", indexes.stream().filter(index -> index.getId() == null).toList(), IndexEntity::setId);
+        jdbcTemplate.batchUpdate(INSERT_INDEX_SQL, indexes, config.getBulkBatchSize(), (statement, index) -> {
+            statement.setInt(1, index.getId());
+            statement.setInt(2, index.getPage().getId());
+            statement.setInt(3, index.getLemma().getId());
+            statement.setDouble(4, index.getRank());
+            statement.setBytes(5, index.getOffsets());
+            statement.setBytes(6, index.getPositions());
+        });
+    }
+
+    private <T> void assignIds(String sequence, List<T> entities, BiConsumer<T, Integer> setter) {
+        if(entities.isEmpty()) {
+            return;
+        }
+        int id = idAllocator.allocate(sequence, entities.size());
+        for(T entity : entities) {
+            setter.accept(entity, id++);
+        }
+    }
+}
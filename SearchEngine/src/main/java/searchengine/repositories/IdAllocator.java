@@ -0,0 +1,61 @@
+package searchengine.repositories;
+
+import org.springframework.jdbc.core.*;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import searchengine.config.Config;
+import java.sql.*;
+import java.util.*;
+
+@Repository
+public class IdAllocator {
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Config config;
+    private final Map<String, long[]> blocks = new HashMap<>();
+
+    private static final String RESERVE_SQL;
+
+    static {
+        RESERVE_SQL = "UPDATE `id_sequence` SET `next_id` = LAST_INSERT_ID(`next_id` + ?) WHERE `name` = ?";
+    }
+
+    public IdAllocator(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, Config config) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.config = config;
+    }
+
+    public synchronized int allocate(String sequence, int count) {
+        long[] block = blocks.computeIfAbsent(sequence, key -> new long[2]);
+        if(block[1] - block[0] < count) {
+            int size = Math.max(count, config.getIdBlockSize());
+            long end = reserve(sequence, size);
+            block[0] = end - size;
+            block[1] = end;
+        }
+        long first = block[0];
+        block[0] += count;
+        return (int) first;
+    }
+
+    private long reserve(String sequence, int size) {
+        return transactionTemplate.execute(status -> jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try(PreparedStatement update = connection.prepareStatement(RESERVE_SQL)) {
+                update.setInt(1, size);
+                update.setString(2, sequence);
+                if(update.executeUpdate() != 1) {
+                    throw new SQLException("Unknown id sequence " + sequence);
+                }
+            }
+            try(Statement select = connection.createStatement();
+                ResultSet resultSet = select.executeQuery("SELECT LAST_INSERT_ID()")) {
+                resultSet.next();
+                return resultSet.getLong(1);
+            }
+        }));
+    }
+}
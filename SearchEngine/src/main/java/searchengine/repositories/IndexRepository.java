@@ -1,10 +1,13 @@
 package searchengine.repositories;
 
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 import searchengine.model.*;
-import java.util.List;
+import java.util.*;
+import java.util.stream.Stream;
 
 @Repository
 public interface IndexRepository extends JpaRepository<IndexEntity, Integer> {
@@ -14,11 +17,33 @@ public interface IndexRepository extends JpaRepository<IndexEntity, Integer> {
     @Query
     IndexEntity findByLemmaAndPage(LemmaEntity lemma, PageEntity page);
 
+    @Query
+    List<IndexEntity> findByPage(PageEntity page);
+
+    @Query(value = "SELECT l.lemma AS lemma, i.page.id AS pageId, i.rank AS weight " +
+            "FROM IndexEntity i JOIN i.lemma l WHERE l.site = :site ORDER BY l.id, i.page.id")
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "" + Integer.MIN_VALUE))
+    Stream<PostingView> streamPostingsBySite(@Param("site") SiteEntity site);
+
+    @Query(value = "SELECT i.page.id AS pageId, l.lemma AS lemma, i.offsets AS offsets " +
+            "FROM IndexEntity i JOIN i.lemma l WHERE i.page.id IN :pageIds AND l.lemma IN :lemmas")
+    List<OffsetView> findOffsetsByPageIdInAndLemmaIn(@Param("pageIds") Collection<Integer> pageIds,
+                                                     @Param("lemmas") Collection<String> lemmas);
+
+    @Query(value = "SELECT i.page.id AS pageId, l.lemma AS lemma, i.positions AS positions " +
+            "FROM IndexEntity i JOIN i.lemma l WHERE i.page.id IN :pageIds AND l.lemma IN :lemmas")
+    List<PositionView> findPositionsByPageIdInAndLemmaIn(@Param("pageIds") Collection<Integer> pageIds,
+                                                         @Param("lemmas") Collection<String> lemmas);
+
+    @Query(value = "SELECT i.page.id AS pageId, l.lemma AS lemma " +
+            "FROM IndexEntity i JOIN i.lemma l WHERE i.page.id IN :pageIds")
+    List<PageLemmaView> findLemmasByPageIdIn(@Param("pageIds") Collection<Integer> pageIds);
+
     @Query
     void deleteAllByPage(PageEntity page);
 
     @Modifying
     @Transactional
-    @Query(value = "TRUNCATE TABLE `index`", nativeQuery = true)
-    void truncateTable();
+    @Query(value = "DELETE FROM `index` WHERE `page_id` IN :pageIds", nativeQuery = true)
+    void deleteAllByPageIdIn(@Param("pageIds") Collection<Integer> pageIds);
 }
@@ -0,0 +1,309 @@
+package searchengine.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.*;
+import searchengine.config.Config;
+import searchengine.model.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.sql.*;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.zip.*;
+
+/**
+ * Binary snapshots of the site, page, lemma and index rows of whole sites. A snapshot is gzip
+ * compressed and ends with a CRC32C of its uncompressed content.
+ * <pre>
+ * header  magic, version, creation time, site count
+ * site    url, name, status, status time, last error
+ *         lemma count, then (id, lemma, frequency) per lemma
+ *         per page: 1, path, code, title, content, token count, etag, last modified, content hash,
+ *         index row count, then (lemma id, rank, offsets, positions) per row; 0 after the last page
+ * trailer checksum
+ * </pre>
+ * Ids are not kept: imported rows get new ids, so a snapshot can be loaded next to existing data.
+ */
+@Repository
+@RequiredArgsConstructor
+public class IndexSnapshot {
+    private final JdbcTemplate jdbcTemplate;
+    private final BulkIndexWriter bulkIndexWriter;
+    private final IdAllocator idAllocator;
+    private final SiteRepository siteRepository;
+    private final Config config;
+
+    private static final int MAGIC = 0x534E4150;
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int PAGE_BATCH = 200;
+    /** No column holds more than a MEDIUMTEXT, so a longer field means the snapshot is corrupt. */
+    private static final int MAX_FIELD_BYTES = 1 << 24;
+
+    private static final String SELECT_LEMMAS_SQL;
+    private static final String SELECT_PAGES_SQL;
+    private static final String SELECT_INDEXES_SQL;
+
+    static {
+        SELECT_LEMMAS_SQL = "SELECT `id`, `lemma`, `frequency` FROM `lemma` WHERE `site_id` = ?";
+        SELECT_PAGES_SQL = "SELECT `id`, `path`, `code`, `title`, `content`, `token_count`, `etag`, " +
+                "`last_modified`, `content_hash` FROM `page` WHERE `site_id` = ? AND `id` > ? ORDER BY `id` LIMIT ?";
+        SELECT_INDEXES_SQL = "SELECT `page_id`, `lemma_id`, `rank`, `offsets`, `positions` FROM `index` " +
+                "WHERE `page_id` IN (%s)";
+    }
+
+    /**
+     * Writes the rows of {@code sites} to {@code file}. All rows are read in one repeatable-read
+     * transaction, so the snapshot is consistent even while pages are being indexed.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public void export(List<SiteEntity> sites, Path file) throws IOException {
+        try(OutputStream fileStream = Files.newOutputStream(file);
+            BufferedOutputStream buffered = new BufferedOutputStream(new GZIPOutputStream(fileStream, BUFFER_SIZE),
+                    BUFFER_SIZE)) {
+            CheckedOutputStream checked = new CheckedOutputStream(buffered, new CRC32C());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(sites.size());
+            for(SiteEntity site : sites) {
+                exportSite(site, out);
+            }
+            out.flush();
+            new DataOutputStream(buffered).writeLong(checked.getChecksum().getValue());
+        }
+    }
+
+    /**
+     * Loads the sites of a snapshot that {@code accepted} lets through as new, not live site rows,
+     * which are added to {@code imported} as soon as they exist. The caller makes them live once
+     * this returns, and drops them if it throws: rows are written before the checksum at the end of
+     * the snapshot can be verified.
+     */
+    public void importFrom(Path file, Predicate<String> accepted, List<SiteEntity> imported) throws IOException {
+        try(InputStream fileStream = Files.newInputStream(file);
+            BufferedInputStream buffered = new BufferedInputStream(new GZIPInputStream(fileStream, BUFFER_SIZE),
+                    BUFFER_SIZE)) {
+            CheckedInputStream checked = new CheckedInputStream(buffered, new CRC32C());
+            DataInputStream in = new DataInputStream(checked);
+            if(in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a snapshot: " + file.getFileName());
+            }
+            in.readLong();
+            int siteCount = readCount(in);
+            for(int i = 0; i < siteCount; i++) {
+                importSite(in, accepted, imported);
+            }
+            long checksum = checked.getChecksum().getValue();
+            if(new DataInputStream(buffered).readLong() != checksum) {
+                throw new IOException("Snapshot checksum mismatch: " + file.getFileName());
+            }
+        }
+    }
+
+    private void exportSite(SiteEntity site, DataOutputStream out) throws IOException {
+        writeString(out, site.getUrl());
+        writeString(out, site.getName());
+        writeString(out, site.getStatus().name());
+        out.writeLong(site.getStatusTime().toEpochMilli());
+        writeString(out, site.getLastError());
+
+        List<Object[]> lemmas = jdbcTemplate.query(SELECT_LEMMAS_SQL, (rows, rowNumber) ->
+                new Object[] {rows.getInt(1), rows.getString(2), rows.getInt(3)}, site.getId());
+        out.writeInt(lemmas.size());
+        for(Object[] lemma : lemmas) {
+            out.writeInt((Integer) lemma[0]);
+            writeString(out, (String) lemma[1]);
+            out.writeInt((Integer) lemma[2]);
+        }
+
+        int lastId = 0;
+        List<PageEntity> pages;
+        while(!(pages = jdbcTemplate.query(SELECT_PAGES_SQL, (rows, rowNumber) -> page(rows),
+                site.getId(), lastId, PAGE_BATCH)).isEmpty()) {
+            Map<Integer, List<Object[]>> indexes = new HashMap<>();
+            jdbcTemplate.query(String.format(SELECT_INDEXES_SQL, String.join(", ", Collections.nCopies(pages.size(), "?"))),
+                    rows -> {
+                        indexes.computeIfAbsent(rows.getInt(1), pageId -> new ArrayList<>()).add(new Object[] {
+                                rows.getInt(2), rows.getDouble(3), rows.getBytes(4), rows.getBytes(5)});
+                    }, pages.stream().map(PageEntity::getId).toArray());
+            for(PageEntity page : pages) {
+                out.writeByte(1);
+                writeString(out, page.getPath());
+                out.writeInt(page.getCode());
+                writeString(out, page.getTitle());
+                writeString(out, page.getContent());
+                out.writeInt(page.getTokenCount());
+                writeString(out, page.getEtag());
+                writeString(out, page.getLastModified());
+                writeString(out, page.getContentHash());
+                List<Object[]> rows = indexes.getOrDefault(page.getId(), List.of());
+                out.writeInt(rows.size());
+                for(Object[] row : rows) {
+                    out.writeInt((Integer) row[0]);
+                    out.writeDouble((Double) row[1]);
+                    writeBytes(out, (byte[]) row[2]);
+                    writeBytes(out, (byte[]) row[3]);
+                }
+            }
+            lastId = pages.get(pages.size() - 1).getId();
+        }
+        out.writeByte(0);
+    }
+
+    private void importSite(DataInputStream in, Predicate<String> accepted, List<SiteEntity> imported)
+            throws IOException {
+        SiteEntity site = new SiteEntity();
+        site.setUrl(readString(in));
+        site.setName(readString(in));
+        site.setStatus(Status.valueOf(readString(in)));
+        site.setStatusTime(Instant.ofEpochMilli(in.readLong()));
+        site.setLastError(readString(in));
+        site.setLive(false);
+        boolean loading = accepted.test(site.getUrl());
+        if(loading) {
+            site = siteRepository.save(site);
+            imported.add(site);
+        }
+
+        int lemmaCount = readCount(in);
+        Map<Integer, LemmaEntity> lemmas = new HashMap<>();
+        List<LemmaDelta> lemmaDeltas = new ArrayList<>();
+        for(int i = 0; i < lemmaCount; i++) {
+            int id = in.readInt();
+            String lemma = readString(in);
+            int frequency = in.readInt();
+            if(!loading) {
+                continue;
+            }
+            LemmaEntity lemmaEntity = new LemmaEntity();
+            lemmaEntity.setLemma(lemma);
+            lemmas.put(id, lemmaEntity);
+            lemmaDeltas.add(new LemmaDelta(id, site.getId(), lemma, frequency));
+            if(lemmaDeltas.size() == config.getBulkBatchSize()) {
+                insertLemmas(lemmaDeltas, lemmas);
+            }
+        }
+        insertLemmas(lemmaDeltas, lemmas);
+
+        List<PageEntity> pages = new ArrayList<>();
+        List<IndexEntity> indexes = new ArrayList<>();
+        while(in.readByte() != 0) {
+            PageEntity page = new PageEntity();
+            page.setSite(site);
+            page.setPath(readString(in));
+            page.setCode(in.readInt());
+            page.setTitle(readString(in));
+            page.setContent(readString(in));
+            page.setTokenCount(in.readInt());
+            page.setEtag(readString(in));
+            page.setLastModified(readString(in));
+            page.setContentHash(readString(in));
+            int rowCount = readCount(in);
+            for(int i = 0; i < rowCount; i++) {
+                IndexEntity index = new IndexEntity();
+                index.setPage(page);
+                index.setLemma(lemmas.get(in.readInt()));
+                index.setRank(in.readDouble());
+                index.setOffsets(readBytes(in));
+                index.setPositions(readBytes(in));
+                if(loading) {
+                    if(index.getLemma() == null) {
+                        throw new IOException("Index row of " + page.getPath() + " refers to an unknown lemma");
+                    }
+                    indexes.add(index);
+                }
+            }
+            if(loading) {
+                pages.add(page);
+            }
+            if(pages.size() == PAGE_BATCH) {
+                flush(pages, indexes);
+            }
+        }
+        flush(pages, indexes);
+    }
+
+    /**
+     * Inserts lemmas read with their snapshot ids under new ids, which are also set on the
+     * entities that index rows refer to.
+     */
+    private void insertLemmas(List<LemmaDelta> deltas, Map<Integer, LemmaEntity> lemmas) {
+        if(deltas.isEmpty()) {
+            return;
+        }
+        int id = idAllocator.allocate("lemma", deltas.size());
+        List<LemmaDelta> inserted = new ArrayList<>();
+        for(LemmaDelta delta : deltas) {
+            lemmas.get(delta.id()).setId(id);
+            inserted.add(new LemmaDelta(id++, delta.siteId(), delta.lemma(), delta.delta()));
+        }
+        bulkIndexWriter.upsertLemmas(inserted);
+        deltas.clear();
+    }
+
+    private void flush(List<PageEntity> pages, List<IndexEntity> indexes) {
+        bulkIndexWriter.insertPages(pages);
+        bulkIndexWriter.insertIndexes(indexes);
+        pages.clear();
+        indexes.clear();
+    }
+
+    private static PageEntity page(ResultSet rows) throws SQLException {
+        PageEntity page = new PageEntity();
+        page.setId(rows.getInt(1));
+        page.setPath(rows.getString(2));
+        page.setCode(rows.getInt(3));
+        page.setTitle(rows.getString(4));
+        page.setContent(rows.getString(5));
+        page.setTokenCount(rows.getInt(6));
+        page.setEtag(rows.getString(7));
+        page.setLastModified(rows.getString(8));
+        page.setContentHash(rows.getString(9));
+        return page;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = readBytes(in);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        if(value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(value.length);
+        out.write(value);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if(length == -1) {
+            return null;
+        }
+        if(length < -1 || length > MAX_FIELD_BYTES) {
+            throw new IOException("Snapshot is corrupt: field of " + length + " bytes");
+        }
+        byte[] value = new byte[length];
+        in.readFully(value);
+        return value;
+    }
+
+    private static int readCount(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if(count < 0) {
+            throw new IOException("Snapshot is corrupt: count of " + count);
+        }
+        return count;
+    }
+}
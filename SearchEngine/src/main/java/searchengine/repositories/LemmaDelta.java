@@ -0,0 +1,4 @@
+package searchengine.repositories;
+
+public record LemmaDelta(int id, int siteId, String lemma, long delta) {
+}
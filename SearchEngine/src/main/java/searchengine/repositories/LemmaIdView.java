@@ -0,0 +1,7 @@
+package searchengine.repositories;
+
+public interface LemmaIdView {
+    Integer getId();
+
+    String getLemma();
+}
@@ -1,25 +1,33 @@
 package searchengine.repositories;
 
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 import searchengine.model.*;
+import java.util.*;
 
 @Repository
 public interface LemmaRepository extends JpaRepository<LemmaEntity, Integer> {
     @Query
     LemmaEntity findOneBySiteAndLemma(SiteEntity site, String lemma);
 
+    @Query
+    List<LemmaEntity> findAllBySiteAndLemmaIn(SiteEntity site, Collection<String> lemmas);
+
     @Query
     long countBySite(SiteEntity site);
 
+    @Query("SELECT l.id AS id, l.lemma AS lemma FROM LemmaEntity l WHERE l.site = :site")
+    List<LemmaIdView> findIdsBySite(@Param("site") SiteEntity site);
+
     @Modifying
     @Transactional
-    @Query(value = "DELETE FROM `lemma`", nativeQuery = true)
-    void deleteAllRecords();
+    @Query(value = "DELETE FROM `lemma` WHERE `site_id` = :siteId AND `frequency` <= 0", nativeQuery = true)
+    void deleteUnusedBySite(@Param("siteId") int siteId);
 
     @Modifying
     @Transactional
-    @Query(value = "ALTER TABLE `lemma` AUTO_INCREMENT = 1", nativeQuery = true)
-    void resetAutoIncrement();
+    @Query(value = "DELETE FROM `lemma` WHERE `site_id` = :siteId", nativeQuery = true)
+    void deleteAllBySiteId(@Param("siteId") int siteId);
 }
@@ -0,0 +1,9 @@
+package searchengine.repositories;
+
+public interface OffsetView {
+    Integer getPageId();
+
+    String getLemma();
+
+    byte[] getOffsets();
+}
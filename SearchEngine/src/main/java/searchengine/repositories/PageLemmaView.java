@@ -0,0 +1,7 @@
+package searchengine.repositories;
+
+public interface PageLemmaView {
+    Integer getPageId();
+
+    String getLemma();
+}
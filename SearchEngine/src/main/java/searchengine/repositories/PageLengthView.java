@@ -0,0 +1,7 @@
+package searchengine.repositories;
+
+public interface PageLengthView {
+    Integer getId();
+
+    Integer getTokenCount();
+}
@@ -1,9 +1,13 @@
 package searchengine.repositories;
 
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
-import org.springframework.transaction.annotation.Transactional;
 import searchengine.model.*;
+import java.util.*;
+import java.util.stream.Stream;
 
 @Repository
 public interface PageRepository extends JpaRepository<PageEntity, Integer> {
@@ -13,13 +17,18 @@ public interface PageRepository extends JpaRepository<PageEntity, Integer> {
     @Query
     PageEntity findOneBySiteAndPath(SiteEntity site, String path);
 
-    @Modifying
-    @Transactional
-    @Query(value = "DELETE FROM `page`", nativeQuery = true)
-    void deleteAllRecords();
+    @Query("SELECT p.id AS id, p.path AS path, p.title AS title, p.content AS content " +
+            "FROM PageEntity p WHERE p.id IN :ids")
+    List<PageView> findViewsByIdIn(@Param("ids") Collection<Integer> ids);
 
-    @Modifying
-    @Transactional
-    @Query(value = "ALTER TABLE `page` AUTO_INCREMENT = 1", nativeQuery = true)
-    void resetAutoIncrement();
+    @Query("SELECT p.id AS id, p.tokenCount AS tokenCount FROM PageEntity p WHERE p.site = :site")
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "" + Integer.MIN_VALUE))
+    Stream<PageLengthView> streamLengthsBySite(@Param("site") SiteEntity site);
+
+    @Query("SELECT p.id FROM PageEntity p WHERE p.site = :site")
+    List<Integer> findIdsBySite(@Param("site") SiteEntity site, Pageable pageable);
+
+    @Query("SELECT p.id AS id, p.path AS path, p.etag AS etag, p.lastModified AS lastModified, " +
+            "p.contentHash AS contentHash FROM PageEntity p WHERE p.site = :site")
+    List<PageStateView> findStatesBySite(@Param("site") SiteEntity site);
 }
@@ -0,0 +1,13 @@
+package searchengine.repositories;
+
+public interface PageStateView {
+    Integer getId();
+
+    String getPath();
+
+    String getEtag();
+
+    String getLastModified();
+
+    String getContentHash();
+}
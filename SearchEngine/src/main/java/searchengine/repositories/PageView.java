@@ -0,0 +1,11 @@
+package searchengine.repositories;
+
+public interface PageView {
+    Integer getId();
+
+    String getPath();
+
+    String getTitle();
+
+    String getContent();
+}
@@ -0,0 +1,9 @@
+package searchengine.repositories;
+
+public interface PositionView {
+    Integer getPageId();
+
+    String getLemma();
+
+    byte[] getPositions();
+}
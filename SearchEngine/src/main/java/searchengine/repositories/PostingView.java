@@ -0,0 +1,9 @@
+package searchengine.repositories;
+
+public interface PostingView {
+    String getLemma();
+
+    Integer getPageId();
+
+    Double getWeight();
+}
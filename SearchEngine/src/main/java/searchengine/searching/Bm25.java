@@ -0,0 +1,31 @@
+package searchengine.searching;
+
+/**
+ * Okapi BM25 weight of one lemma within one site.
+ * The document frequency is the posting list size, which is the same count as
+ * {@code LemmaEntity.frequency} but already in memory.
+ */
+public class Bm25 {
+    public static final double K1 = 1.2;
+    public static final double B = 0.75;
+
+    private final double idf;
+    private final double averageLength;
+
+    public Bm25(int pageCount, int documentFrequency, double averageLength) {
+        this.idf = Math.log(1 + (pageCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+        this.averageLength = averageLength;
+    }
+
+    public double score(int rank, int length) {
+        double norm = averageLength <= 0 || length <= 0 ? 1 : 1 - B + B * length / averageLength;
+        return idf * rank * (K1 + 1) / (rank + K1 * norm);
+    }
+
+    /**
+     * Highest score any page with at most {@code rank} occurrences can get, reached by the shortest page.
+     */
+    public double upperBound(int rank) {
+        return idf * rank * (K1 + 1) / (rank + K1 * (1 - B));
+    }
+}
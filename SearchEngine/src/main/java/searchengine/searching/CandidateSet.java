@@ -0,0 +1,63 @@
+package searchengine.searching;
+
+import lombok.Getter;
+import searchengine.dto.search.SearchData;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Getter
+public class CandidateSet {
+    static final Comparator<FoundPage> RANKING = Comparator
+            .comparingDouble(FoundPage::getRelevance).reversed()
+            .thenComparingInt(FoundPage::getPageId);
+
+    private final List<FoundPage> pages;
+    private final Set<String> lemmas;
+    private final int count;
+    private final boolean exactCount;
+    private final int depth;
+    private final double maxRelevance;
+    private final List<String> timedOutSites;
+    private final Map<Integer, SearchData> results = new ConcurrentHashMap<>();
+
+    public CandidateSet(List<FoundPage> pages, Set<String> lemmas, int count, boolean exactCount, int depth,
+                        List<String> timedOutSites) {
+        this.pages = pages;
+        this.lemmas = lemmas;
+        this.count = count;
+        this.exactCount = exactCount;
+        this.depth = depth;
+        this.timedOutSites = timedOutSites;
+        this.maxRelevance = pages.stream().mapToDouble(FoundPage::getRelevance).max().orElse(1.0);
+    }
+
+    /**
+     * Whether the first {@code k} results are known. Only the best {@code depth} pages of every site
+     * were kept, so deeper pages need a new search. An estimated count does not prove that all
+     * pages were kept.
+     */
+    public boolean covers(int k) {
+        return k <= depth || exactCount && pages.size() >= count;
+    }
+
+    public List<FoundPage> top(int offset, int limit) {
+        int k = offset + limit;
+        if(k <= 0 || offset >= pages.size()) {
+            return new ArrayList<>();
+        }
+
+        PriorityQueue<FoundPage> heap = new PriorityQueue<>(Math.min(k, pages.size()), RANKING.reversed());
+        for(FoundPage page : pages) {
+            if(heap.size() < k) {
+                heap.add(page);
+            } else if(RANKING.compare(page, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(page);
+            }
+        }
+
+        List<FoundPage> result = new ArrayList<>(heap);
+        result.sort(RANKING);
+        return result.subList(offset, result.size());
+    }
+}
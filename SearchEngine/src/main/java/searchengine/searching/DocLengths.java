@@ -0,0 +1,123 @@
+package searchengine.searching;
+
+import java.nio.IntBuffer;
+
+/**
+ * Token counts of indexed pages addressed by page id, in a plain array that starts at the lowest
+ * id with a length. Ids are never reused: every reindexing allocates ids above all earlier ones,
+ * so the array is moved up to the ids still in use whenever it grows, and cut down by
+ * {@link #compact()} once a dropped site generation has cleared its lengths. Writers are
+ * serialized; readers see either the old or the new array and treat a missing length as 0.
+ */
+class DocLengths {
+    private static final int MIN_CAPACITY = 1024;
+
+    private volatile Table table = new Table(0, new int[0]);
+
+    int get(int pageId) {
+        Table current = table;
+        int index = pageId - current.base;
+        return index >= 0 && index < current.lengths.length ? current.lengths[index] : 0;
+    }
+
+    synchronized int set(int pageId, int length) {
+        Table current = table;
+        if(length == 0 && !current.contains(pageId)) {
+            return 0;
+        }
+        current = fit(pageId, pageId);
+        int previous = current.lengths[pageId - current.base];
+        current.lengths[pageId - current.base] = length;
+        table = current;
+        return previous;
+    }
+
+    /**
+     * Sets the lengths of pages {@code base}, {@code base + 1}, ... from {@code lengths}. Zero
+     * entries belong to pages of other sites and are skipped.
+     */
+    synchronized void load(int base, IntBuffer lengths) {
+        if(lengths.limit() == 0) {
+            return;
+        }
+        Table current = fit(base, base + lengths.limit() - 1);
+        for(int i = 0; i < lengths.limit(); i++) {
+            int length = lengths.get(i);
+            if(length != 0) {
+                current.lengths[base + i - current.base] = length;
+            }
+        }
+        table = current;
+    }
+
+    /**
+     * Shrinks the array to the ids that still have a length once less than half of it is used.
+     */
+    synchronized void compact() {
+        Table current = table;
+        int first = firstUsed(current.lengths);
+        int used = first < 0 ? 0 : lastUsed(current.lengths) - first + 1;
+        if(current.lengths.length <= MIN_CAPACITY || used * 2L > current.lengths.length) {
+            return;
+        }
+        int[] lengths = new int[Math.max(MIN_CAPACITY, used + (used >> 2))];
+        if(used > 0) {
+            System.arraycopy(current.lengths, first, lengths, 0, used);
+        }
+        table = new Table(used > 0 ? current.base + first : 0, lengths);
+    }
+
+    synchronized void clear() {
+        table = new Table(0, new int[0]);
+    }
+
+    /**
+     * Returns the current table if it holds ids {@code from} to {@code to}, else a larger copy that
+     * starts at the lowest id in use, so lengths cleared below it are not carried along.
+     */
+    private Table fit(int from, int to) {
+        Table current = table;
+        if(current.contains(from) && current.contains(to)) {
+            return current;
+        }
+        int first = firstUsed(current.lengths);
+        int last = first < 0 ? -1 : lastUsed(current.lengths);
+        long low = first < 0 ? from : Math.min(from, current.base + first);
+        long high = first < 0 ? to : Math.max(to, current.base + last);
+        long size = high - low + 1;
+        long slack = Math.max(MIN_CAPACITY, size >> 1);
+        if(first >= 0 && from < current.base + first) {
+            low = Math.max(0, low - slack);
+        }
+        int capacity = (int) Math.min(Integer.MAX_VALUE - 8, high - low + 1 + slack);
+        int[] lengths = new int[capacity];
+        if(first >= 0) {
+            System.arraycopy(current.lengths, first, lengths, (int) (current.base + first - low), last - first + 1);
+        }
+        return new Table((int) low, lengths);
+    }
+
+    private static int firstUsed(int[] lengths) {
+        for(int i = 0; i < lengths.length; i++) {
+            if(lengths[i] != 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int lastUsed(int[] lengths) {
+        for(int i = lengths.length - 1; i >= 0; i--) {
+            if(lengths[i] != 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private record Table(int base, int[] lengths) {
+        boolean contains(int pageId) {
+            return pageId >= base && pageId - base < lengths.length;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package searchengine.searching;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import searchengine.model.SiteEntity;
+
+@Data
+@AllArgsConstructor
+public class FoundPage {
+    private int pageId;
+    private SiteEntity site;
+    private double relevance;
+}
@@ -0,0 +1,221 @@
+package searchengine.searching;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.model.IndexEntity;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Posting lists of all sites. A site is either built in memory, from the database or by indexing,
+ * or opened from its segment; changes after that are kept in memory until
+ * {@link #persistChanged} writes them into a new segment.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class InvertedIndex {
+    private final Map<Integer, SiteIndex> sites = new ConcurrentHashMap<>();
+    private final DocLengths docLengths = new DocLengths();
+    private final Map<Integer, Integer> openChanges = new ConcurrentHashMap<>();
+    private final AtomicLong generationCounter = new AtomicLong();
+    private final SegmentStore segmentStore;
+    private volatile long clearedGeneration;
+
+    public PostingList getPostings(int siteId, String lemma) {
+        SiteIndex siteIndex = sites.get(siteId);
+        return siteIndex == null ? null : siteIndex.getPostings(lemma);
+    }
+
+    public int getPageCount(int siteId) {
+        SiteIndex siteIndex = sites.get(siteId);
+        return siteIndex == null ? 0 : siteIndex.getPageCount();
+    }
+
+    public int getDocLength(int pageId) {
+        return docLengths.get(pageId);
+    }
+
+    public double getAverageDocLength(int siteId) {
+        SiteIndex siteIndex = sites.get(siteId);
+        return siteIndex == null ? 0 : siteIndex.getAverageLength();
+    }
+
+    public long getGeneration(int siteId) {
+        SiteIndex siteIndex = sites.get(siteId);
+        return siteIndex == null ? clearedGeneration : siteIndex.getGeneration();
+    }
+
+    public void appendPostings(int siteId, String lemma, int[] docs, int[] ranks, int count) {
+        siteIndex(siteId).append(lemma, docs, ranks, count);
+    }
+
+    public void addPageCount(int siteId, int pageCount) {
+        siteIndex(siteId).addPageCount(pageCount);
+    }
+
+    public void setDocLength(int siteId, int pageId, int length) {
+        siteIndex(siteId).addLength(length - docLengths.set(pageId, length));
+    }
+
+    public void indexPages(int siteId, int pageCount, Collection<IndexEntity> indexEntities) {
+        SiteIndex siteIndex = siteIndex(siteId);
+        Map<String, List<IndexEntity>> byLemma = new HashMap<>();
+        Map<Integer, Integer> lengths = new HashMap<>();
+        for(IndexEntity indexEntity : indexEntities) {
+            byLemma.computeIfAbsent(indexEntity.getLemma().getLemma(), key -> new ArrayList<>())
+                    .add(indexEntity);
+            Integer tokenCount = indexEntity.getPage().getTokenCount();
+            lengths.put(indexEntity.getPage().getId(), tokenCount == null ? 0 : tokenCount);
+        }
+        lengths.forEach((pageId, length) -> siteIndex.addLength(length - docLengths.set(pageId, length)));
+
+        byLemma.forEach((lemma, entities) -> {
+            entities.sort(Comparator.comparing(indexEntity -> indexEntity.getPage().getId()));
+            int[] docs = new int[entities.size()];
+            int[] ranks = new int[entities.size()];
+            for(int i = 0; i < docs.length; i++) {
+                docs[i] = entities.get(i).getPage().getId();
+                ranks[i] = (int) Math.round(entities.get(i).getRank());
+            }
+            siteIndex.append(lemma, docs, ranks, docs.length);
+        });
+        siteIndex.addPageCount(pageCount);
+        siteIndex.setGeneration(generationCounter.incrementAndGet());
+    }
+
+    public void removePage(int siteId, int pageId, Collection<String> lemmas) {
+        SiteIndex siteIndex = sites.get(siteId);
+        if(siteIndex == null) {
+            return;
+        }
+        lemmas.forEach(lemma -> siteIndex.remove(lemma, pageId));
+        siteIndex.addLength(-docLengths.set(pageId, 0));
+        siteIndex.addPageCount(-1);
+        siteIndex.setGeneration(generationCounter.incrementAndGet());
+    }
+
+    public void removeSite(int siteId) {
+        SiteIndex siteIndex = sites.remove(siteId);
+        if(siteIndex != null) {
+            clearDocLengths(siteIndex);
+        }
+        segmentStore.delete(siteId);
+    }
+
+    /**
+     * Clears the lengths of the pages of a removed site and compacts the lengths, so the ids of
+     * dropped generations do not keep the array growing.
+     */
+    private void clearDocLengths(SiteIndex siteIndex) {
+        BitSet docs = new BitSet();
+        for(String lemma : siteIndex.getLemmas()) {
+            PostingList postings = siteIndex.getPostings(lemma);
+            if(postings == null) {
+                continue;
+            }
+            PostingList.Cursor cursor = postings.cursor();
+            while(cursor.nextDoc() != PostingList.NO_MORE_DOCS) {
+                docs.set(cursor.doc());
+            }
+        }
+        docs.stream().forEach(pageId -> docLengths.set(pageId, 0));
+        docLengths.compact();
+    }
+
+    /**
+     * Opens the current segment of a site, if there is one. Only the page lengths are copied.
+     */
+    public boolean openSegment(int siteId) {
+        Segment segment = segmentStore.open(siteId);
+        if(segment == null) {
+            return false;
+        }
+        docLengths.load(segment.getNormBase(), segment.getNorms());
+        sites.put(siteId, new SiteIndex(generationCounter.incrementAndGet(), segment));
+        return true;
+    }
+
+    /**
+     * Must be called before pages of a site change in the database, and be followed by
+     * {@link #endChange} once that change is committed or rolled back. The segment of the site
+     * stops being current, also if it is being written right now, and no new segment of the site
+     * enters the manifest while a change is open.
+     */
+    public void beginChange(int siteId) {
+        openChanges.merge(siteId, 1, Integer::sum);
+        SiteIndex siteIndex = sites.get(siteId);
+        if(siteIndex == null) {
+            segmentStore.invalidate(siteId);
+            return;
+        }
+        synchronized(siteIndex) {
+            siteIndex.touch();
+            segmentStore.invalidate(siteId);
+        }
+    }
+
+    /**
+     * Ends a change begun by {@link #beginChange}. Counts as a change of the site, so a segment
+     * read while the database change was open is not taken as current.
+     */
+    public void endChange(int siteId) {
+        openChanges.computeIfPresent(siteId, (key, count) -> count == 1 ? null : count - 1);
+        SiteIndex siteIndex = sites.get(siteId);
+        if(siteIndex != null) {
+            siteIndex.touch();
+        }
+    }
+
+    /**
+     * Writes a new segment for every site changed since its last segment and unchanged for at
+     * least {@code quietNanos}, so sites are not rewritten while they are being crawled.
+     */
+    public void persistChanged(long quietNanos) {
+        if(!segmentStore.isEnabled()) {
+            return;
+        }
+        long now = System.nanoTime();
+        sites.forEach((siteId, siteIndex) -> {
+            if(!siteIndex.isPersisted() && !openChanges.containsKey(siteId)
+                    && now - siteIndex.getModifiedAt() >= quietNanos) {
+                persist(siteId, siteIndex);
+            }
+        });
+    }
+
+    private void persist(int siteId, SiteIndex siteIndex) {
+        long start = System.currentTimeMillis();
+        long version = siteIndex.getVersion();
+        Segment segment;
+        try {
+            segment = segmentStore.write(siteId, siteIndex, docLengths);
+        } catch (IOException e) {
+            log.error("Writing segment failed: " + e.getMessage() + " Site: " + siteId);
+            return;
+        }
+        synchronized(siteIndex) {
+            if(sites.get(siteId) == siteIndex && !openChanges.containsKey(siteId)
+                    && siteIndex.rebase(segment, version)) {
+                segmentStore.commit(siteId, segment);
+                log.info(String.format("Segment of site %d with %d lemmas written in %d ms", siteId,
+                        segment.getLemmaCount(), System.currentTimeMillis() - start));
+            } else {
+                segmentStore.discard(segment);
+            }
+        }
+    }
+
+    public void clear() {
+        clearedGeneration = generationCounter.incrementAndGet();
+        sites.clear();
+        docLengths.clear();
+    }
+
+    private SiteIndex siteIndex(int siteId) {
+        return sites.computeIfAbsent(siteId, key -> new SiteIndex(generationCounter.incrementAndGet()));
+    }
+}
@@ -0,0 +1,88 @@
+package searchengine.searching;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import searchengine.cluster.ShardMap;
+import searchengine.model.SiteEntity;
+import searchengine.repositories.*;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class InvertedIndexLoader {
+    private final InvertedIndex invertedIndex;
+    private final SiteRepository siteRepository;
+    private final PageRepository pageRepository;
+    private final IndexRepository indexRepository;
+    private final ShardMap shardMap;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        long start = System.currentTimeMillis();
+        invertedIndex.clear();
+        for(SiteEntity siteEntity : siteRepository.findAllByLiveTrue()) {
+            if(!shardMap.owns(siteEntity.getUrl()) || invertedIndex.openSegment(siteEntity.getId())) {
+                continue;
+            }
+            loadSite(siteEntity);
+        }
+        log.info(String.format("Inverted index loaded in %d ms", System.currentTimeMillis() - start));
+    }
+
+    /**
+     * Builds the index of one site from the database, e.g. after its rows were imported.
+     */
+    @Transactional(readOnly = true)
+    public void loadSite(SiteEntity siteEntity) {
+        try(Stream<PostingView> postings = indexRepository.streamPostingsBySite(siteEntity)) {
+            loadPostings(siteEntity.getId(), postings);
+        }
+        try(Stream<PageLengthView> lengths = pageRepository.streamLengthsBySite(siteEntity)) {
+            lengths.forEach(page -> invertedIndex.setDocLength(siteEntity.getId(), page.getId(),
+                    page.getTokenCount() == null ? 0 : page.getTokenCount()));
+        }
+        invertedIndex.addPageCount(siteEntity.getId(), (int) pageRepository.countBySite(siteEntity));
+    }
+
+    private void loadPostings(int siteId, Stream<PostingView> postings) {
+        PostingBuffer buffer = new PostingBuffer();
+        postings.forEach(posting -> {
+            if(!posting.getLemma().equals(buffer.lemma)) {
+                buffer.flush(siteId);
+                buffer.lemma = posting.getLemma();
+            }
+            buffer.add(posting.getPageId(), (int) Math.round(posting.getWeight()));
+        });
+        buffer.flush(siteId);
+    }
+
+    private class PostingBuffer {
+        private String lemma;
+        private int[] docs = new int[64];
+        private int[] ranks = new int[64];
+        private int count;
+
+        private void add(int doc, int rank) {
+            if(count == docs.length) {
+                docs = Arrays.copyOf(docs, count * 2);
+                ranks = Arrays.copyOf(ranks, count * 2);
+            }
+            docs[count] = doc;
+            ranks[count++] = rank;
+        }
+
+        private void flush(int siteId) {
+            if(count > 0) {
+                invertedIndex.appendPostings(siteId, lemma, docs, ranks, count);
+            }
+            count = 0;
+        }
+    }
+}
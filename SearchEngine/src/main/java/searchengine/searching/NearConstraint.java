@@ -0,0 +1,45 @@
+package searchengine.searching;
+
+import java.util.*;
+
+/**
+ * {@code a NEAR/k b}: some occurrences of both lemmas are at most {@code distance} words apart,
+ * in either order.
+ */
+public record NearConstraint(String left, String right, int distance) implements PositionConstraint {
+    @Override
+    public Collection<String> lemmas() {
+        return List.of(left, right);
+    }
+
+    @Override
+    public boolean matches(Map<String, int[]> pagePositions) {
+        int[] a = pagePositions.get(left);
+        int[] b = pagePositions.get(right);
+        if(a == null || b == null) {
+            return false;
+        }
+        if(left.equals(right)) {
+            for(int i = 1; i < a.length; i++) {
+                if(a[i] - a[i - 1] <= distance) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        int i = 0;
+        int j = 0;
+        while(i < a.length && j < b.length) {
+            if(Math.abs(a[i] - b[j]) <= distance) {
+                return true;
+            }
+            if(a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return false;
+    }
+}
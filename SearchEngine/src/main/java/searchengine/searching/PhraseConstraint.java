@@ -0,0 +1,35 @@
+package searchengine.searching;
+
+import java.util.*;
+
+/**
+ * Quoted phrase: every lemma has to occur at the same word distance from the first one
+ * as it has in the query. Stop words keep their place, so "кот в сапогах" allows any
+ * single word between the two lemmas.
+ */
+public record PhraseConstraint(List<String> lemmas, List<Integer> positions) implements PositionConstraint {
+    @Override
+    public boolean matches(Map<String, int[]> pagePositions) {
+        int[] first = pagePositions.get(lemmas.get(0));
+        if(first == null) {
+            return false;
+        }
+        for(int start : first) {
+            if(matchesAt(pagePositions, start)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matchesAt(Map<String, int[]> pagePositions, int start) {
+        for(int i = 1; i < lemmas.size(); i++) {
+            int[] found = pagePositions.get(lemmas.get(i));
+            int expected = start + positions.get(i) - positions.get(0);
+            if(found == null || Arrays.binarySearch(found, expected) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,9 @@
+package searchengine.searching;
+
+import java.util.*;
+
+public interface PositionConstraint {
+    Collection<String> lemmas();
+
+    boolean matches(Map<String, int[]> positions);
+}
@@ -0,0 +1,8 @@
+package searchengine.searching;
+
+import java.util.*;
+
+@FunctionalInterface
+public interface PositionLoader {
+    Map<Integer, Map<String, int[]>> load(Collection<Integer> pageIds, Collection<String> lemmas);
+}
@@ -0,0 +1,104 @@
+package searchengine.searching;
+
+import java.util.*;
+
+public class PostingIntersector {
+    private final PostingList.Cursor[] cursors;
+    private final int upperBound;
+    private int examined;
+    private int skipped;
+
+    public PostingIntersector(List<PostingList> postingLists) {
+        List<PostingList> sorted = postingLists.stream()
+                .sorted(Comparator.comparingInt(PostingList::size))
+                .toList();
+        cursors = sorted.stream()
+                .map(PostingList::cursor)
+                .toArray(PostingList.Cursor[]::new);
+        upperBound = sorted.stream()
+                .mapToInt(PostingList::lastDoc)
+                .min()
+                .orElse(-1);
+    }
+
+    public PostingList.Cursor[] getCursors() {
+        return cursors;
+    }
+
+    public void forEachMatch(MatchCollector collector) {
+        forEachMatch(collector, null);
+    }
+
+    /**
+     * Like {@link #forEachMatch(MatchCollector)}, but first asks {@code pruner} whether the blocks
+     * of all lists at the next page of the shortest list can hold a page worth collecting. If not,
+     * every page up to the end of the first of those blocks to end is skipped without being decoded
+     * or looked up in the other lists.
+     */
+    public void forEachMatch(MatchCollector collector, BlockPruner pruner) {
+        if(cursors.length == 0 || upperBound < 0) {
+            return;
+        }
+
+        PostingList.Cursor lead = cursors[0];
+        int doc = lead.nextDoc();
+        while(doc <= upperBound) {
+            if(pruner != null) {
+                int blockEnd = upperBound;
+                for(PostingList.Cursor cursor : cursors) {
+                    blockEnd = Math.min(blockEnd, cursor.shallowAdvance(doc));
+                }
+                if(pruner.canSkip(cursors)) {
+                    int from = lead.ordinal();
+                    doc = lead.advance(blockEnd + 1);
+                    skipped += (doc == PostingList.NO_MORE_DOCS ? lead.postingList().size() + 1 : lead.ordinal())
+                            - from;
+                    continue;
+                }
+            }
+            examined++;
+            int candidate = doc;
+            for(int i = 1; i < cursors.length; i++) {
+                int found = cursors[i].advance(candidate);
+                if(found != candidate) {
+                    candidate = found;
+                    break;
+                }
+            }
+            if(candidate == doc) {
+                collector.collect(doc, cursors);
+                doc = lead.nextDoc();
+            } else {
+                doc = lead.advance(candidate);
+            }
+        }
+    }
+
+    /**
+     * Postings of the shortest list that were looked up in the other lists.
+     */
+    public int getExamined() {
+        return examined;
+    }
+
+    /**
+     * Postings of the shortest list skipped because the pruner ruled out their blocks.
+     */
+    public int getSkipped() {
+        return skipped;
+    }
+
+    @FunctionalInterface
+    public interface MatchCollector {
+        void collect(int doc, PostingList.Cursor[] cursors);
+    }
+
+    @FunctionalInterface
+    public interface BlockPruner {
+        /**
+         * Whether no page in the current shallow blocks of {@code cursors}, see
+         * {@link PostingList.Cursor#shallowMaxRank()}, can be collected.
+         */
+        boolean canSkip(PostingList.Cursor[] cursors);
+    }
+}
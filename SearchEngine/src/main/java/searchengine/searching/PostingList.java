@@ -0,0 +1,401 @@
+package searchengine.searching;
+
+import java.nio.*;
+import java.util.Arrays;
+
+/**
+ * Immutable list of (page id, rank) postings of one lemma, sorted by page id.
+ * Page ids are stored as varint-encoded deltas, each followed by the varint rank.
+ * Every {@value #SKIP_INTERVAL} postings a skip entry keeps the last page id of the
+ * block and the byte offset right after it, so cursors can jump over whole blocks.
+ * Skip entries also keep the highest rank of their block, which bounds the score
+ * of any page in it for block-max top-k evaluation.
+ * A list lives either in heap arrays or, read-only, in a mapped {@link Segment}; appending to
+ * or removing from a mapped list copies it to the heap first. Cursors over a mapped list copy
+ * {@value #WINDOW_BYTES} bytes at a time into a small array and decode from there.
+ */
+public final class PostingList {
+    public static final int NO_MORE_DOCS = Integer.MAX_VALUE;
+    public static final int SKIP_INTERVAL = 64;
+
+    static final int HEADER_BYTES = 24;
+    private static final int WINDOW_BYTES = 512;
+    private static final int MAX_POSTING_BYTES = 10;
+
+    private final ByteBuffer data;
+    private final byte[] array;
+    private final int length;
+    private final int size;
+    private final int lastDoc;
+    private final IntBuffer skipDocs;
+    private final IntBuffer skipOffsets;
+    private final IntBuffer skipMaxRanks;
+    private final int tailMaxRank;
+    private final int maxRank;
+
+    private PostingList(ByteBuffer data, int length, int size, int lastDoc, IntBuffer skipDocs, IntBuffer skipOffsets,
+                        IntBuffer skipMaxRanks, int tailMaxRank, int maxRank) {
+        this.data = data;
+        this.array = data.hasArray() ? data.array() : null;
+        this.length = length;
+        this.size = size;
+        this.lastDoc = lastDoc;
+        this.skipDocs = skipDocs;
+        this.skipOffsets = skipOffsets;
+        this.skipMaxRanks = skipMaxRanks;
+        this.tailMaxRank = tailMaxRank;
+        this.maxRank = maxRank;
+    }
+
+    public static PostingList of(int[] docs, int[] ranks, int count) {
+        byte[] data = new byte[encodedSize(docs, ranks, count, 0)];
+        int[] skipDocs = new int[count / SKIP_INTERVAL];
+        int[] skipOffsets = new int[count / SKIP_INTERVAL];
+        int[] skipMaxRanks = new int[count / SKIP_INTERVAL];
+        int length = encode(data, 0, 0, docs, ranks, count, 0, skipDocs, skipOffsets);
+        int tailMaxRank = blockMaxima(skipMaxRanks, 0, 0, ranks, count);
+        return new PostingList(ByteBuffer.wrap(data), length, count, count == 0 ? 0 : docs[count - 1],
+                IntBuffer.wrap(skipDocs), IntBuffer.wrap(skipOffsets), IntBuffer.wrap(skipMaxRanks),
+                tailMaxRank, max(0, ranks, count));
+    }
+
+    /**
+     * Reads the list written by {@link #writeTo} at {@code offset} of a little-endian segment buffer
+     * without copying it.
+     */
+    static PostingList read(ByteBuffer segment, int offset) {
+        int size = segment.getInt(offset);
+        int length = segment.getInt(offset + 4);
+        int lastDoc = segment.getInt(offset + 8);
+        int maxRank = segment.getInt(offset + 12);
+        int tailMaxRank = segment.getInt(offset + 16);
+        int skipCount = segment.getInt(offset + 20);
+        int skips = offset + HEADER_BYTES;
+        int dataOffset = skips + skipCount * 12;
+        return new PostingList(segment.slice(dataOffset, length).order(ByteOrder.LITTLE_ENDIAN), length, size, lastDoc,
+                ints(segment, skips, skipCount), ints(segment, skips + skipCount * 4, skipCount),
+                ints(segment, skips + skipCount * 8, skipCount), tailMaxRank, maxRank);
+    }
+
+    /**
+     * Bytes taken by {@link #writeTo}, padded so the next list starts at an int boundary.
+     */
+    int serializedSize() {
+        return (HEADER_BYTES + size / SKIP_INTERVAL * 12 + length + 3) & ~3;
+    }
+
+    void writeTo(ByteBuffer target, int offset) {
+        int skipCount = size / SKIP_INTERVAL;
+        target.putInt(offset, size)
+                .putInt(offset + 4, length)
+                .putInt(offset + 8, lastDoc)
+                .putInt(offset + 12, maxRank)
+                .putInt(offset + 16, tailMaxRank)
+                .putInt(offset + 20, skipCount);
+        int position = offset + HEADER_BYTES;
+        for(IntBuffer skips : new IntBuffer[] {skipDocs, skipOffsets, skipMaxRanks}) {
+            for(int i = 0; i < skipCount; i++, position += 4) {
+                target.putInt(position, skips.get(i));
+            }
+        }
+        target.put(position, data, 0, length);
+    }
+
+    private static IntBuffer ints(ByteBuffer segment, int offset, int count) {
+        return segment.slice(offset, count * 4).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int lastDoc() {
+        return lastDoc;
+    }
+
+    public int sizeInBytes() {
+        return length;
+    }
+
+    public int maxRank() {
+        return maxRank;
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    public PostingList append(int[] docs, int[] ranks, int count) {
+        if(count == 0) {
+            return this;
+        }
+        if(!data.hasArray() || (size > 0 && docs[0] <= lastDoc)) {
+            return merge(docs, ranks, count);
+        }
+
+        int needed = encodedSize(docs, ranks, count, lastDoc);
+        byte[] target = data.array();
+        if(target.length - length < needed) {
+            target = Arrays.copyOf(target, Math.max(length + needed, length + (length >> 1)));
+        }
+        int skipCount = (size + count) / SKIP_INTERVAL;
+        int[] targetSkipDocs = skipDocs.array();
+        int[] targetSkipOffsets = skipOffsets.array();
+        int[] targetSkipMaxRanks = skipMaxRanks.array();
+        if(targetSkipDocs.length < skipCount) {
+            int skipCapacity = Math.max(skipCount, targetSkipDocs.length + (targetSkipDocs.length >> 1));
+            targetSkipDocs = Arrays.copyOf(targetSkipDocs, skipCapacity);
+            targetSkipOffsets = Arrays.copyOf(targetSkipOffsets, skipCapacity);
+            targetSkipMaxRanks = Arrays.copyOf(targetSkipMaxRanks, skipCapacity);
+        }
+        int newLength = encode(target, length, size, docs, ranks, count, lastDoc, targetSkipDocs, targetSkipOffsets);
+        int newTailMaxRank = blockMaxima(targetSkipMaxRanks, size, tailMaxRank, ranks, count);
+        return new PostingList(ByteBuffer.wrap(target), newLength, size + count, docs[count - 1],
+                IntBuffer.wrap(targetSkipDocs), IntBuffer.wrap(targetSkipOffsets), IntBuffer.wrap(targetSkipMaxRanks),
+                newTailMaxRank, max(maxRank, ranks, count));
+    }
+
+    public PostingList remove(int doc) {
+        int[] docs = new int[size];
+        int[] ranks = new int[size];
+        decode(docs, ranks);
+        int index = Arrays.binarySearch(docs, 0, size, doc);
+        if(index < 0) {
+            return this;
+        }
+        System.arraycopy(docs, index + 1, docs, index, size - index - 1);
+        System.arraycopy(ranks, index + 1, ranks, index, size - index - 1);
+        return of(docs, ranks, size - 1);
+    }
+
+    public void decode(int[] docs, int[] ranks) {
+        Cursor cursor = cursor();
+        for(int i = 0; cursor.nextDoc() != NO_MORE_DOCS; i++) {
+            docs[i] = cursor.doc();
+            ranks[i] = cursor.rank();
+        }
+    }
+
+    private PostingList merge(int[] docs, int[] ranks, int count) {
+        int[] oldDocs = new int[size];
+        int[] oldRanks = new int[size];
+        decode(oldDocs, oldRanks);
+
+        int[] mergedDocs = new int[size + count];
+        int[] mergedRanks = new int[size + count];
+        int i = 0, j = 0, k = 0;
+        while(i < size || j < count) {
+            if(j == count || (i < size && oldDocs[i] < docs[j])) {
+                mergedDocs[k] = oldDocs[i];
+                mergedRanks[k++] = oldRanks[i++];
+            } else {
+                if(i < size && oldDocs[i] == docs[j]) {
+                    i++;
+                }
+                mergedDocs[k] = docs[j];
+                mergedRanks[k++] = ranks[j++];
+            }
+        }
+        return of(mergedDocs, mergedRanks, k);
+    }
+
+    private static int encodedSize(int[] docs, int[] ranks, int count, int previousDoc) {
+        int bytes = 0;
+        for(int i = 0; i < count; i++) {
+            bytes += varIntSize(docs[i] - previousDoc) + varIntSize(ranks[i]);
+            previousDoc = docs[i];
+        }
+        return bytes;
+    }
+
+    private static int encode(byte[] target, int position, int ordinal, int[] docs, int[] ranks, int count,
+                              int previousDoc, int[] skipDocs, int[] skipOffsets) {
+        for(int i = 0; i < count; i++) {
+            position = writeVarInt(target, position, docs[i] - previousDoc);
+            position = writeVarInt(target, position, ranks[i]);
+            previousDoc = docs[i];
+            if(++ordinal % SKIP_INTERVAL == 0) {
+                skipDocs[ordinal / SKIP_INTERVAL - 1] = previousDoc;
+                skipOffsets[ordinal / SKIP_INTERVAL - 1] = position;
+            }
+        }
+        return position;
+    }
+
+    private static int blockMaxima(int[] skipMaxRanks, int ordinal, int blockMax, int[] ranks, int count) {
+        for(int i = 0; i < count; i++) {
+            blockMax = Math.max(blockMax, ranks[i]);
+            if(++ordinal % SKIP_INTERVAL == 0) {
+                skipMaxRanks[ordinal / SKIP_INTERVAL - 1] = blockMax;
+                blockMax = 0;
+            }
+        }
+        return blockMax;
+    }
+
+    private static int max(int max, int[] values, int count) {
+        for(int i = 0; i < count; i++) {
+            max = Math.max(max, values[i]);
+        }
+        return max;
+    }
+
+    private static int varIntSize(int value) {
+        int bytes = 1;
+        while((value & ~0x7F) != 0) {
+            value >>>= 7;
+            bytes++;
+        }
+        return bytes;
+    }
+
+    private static int writeVarInt(byte[] target, int position, int value) {
+        while((value & ~0x7F) != 0) {
+            target[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        target[position++] = (byte) value;
+        return position;
+    }
+
+    public final class Cursor {
+        private byte[] window = array;
+        private int windowStart;
+        private int windowLimit = array != null ? Integer.MAX_VALUE : -1;
+        private int position;
+        private int read;
+        private int doc = -1;
+        private int rank;
+        private int shallowBlock;
+
+        private Cursor() {
+        }
+
+        public int doc() {
+            return doc;
+        }
+
+        public int rank() {
+            return rank;
+        }
+
+        public PostingList postingList() {
+            return PostingList.this;
+        }
+
+        public int blockMaxRank() {
+            int block = (read - 1) / SKIP_INTERVAL;
+            return block < size / SKIP_INTERVAL ? skipMaxRanks.get(block) : tailMaxRank;
+        }
+
+        /**
+         * Number of postings read or skipped so far.
+         */
+        public int ordinal() {
+            return read;
+        }
+
+        /**
+         * Finds the block that holds {@code target} from the skip entries alone, without moving the
+         * cursor or decoding postings, and returns the last page id of that block.
+         * {@link #shallowMaxRank()} then bounds the rank of every page up to that id.
+         */
+        public int shallowAdvance(int target) {
+            int skipCount = size / SKIP_INTERVAL;
+            int block = Math.max(shallowBlock, Math.max(read - 1, 0) / SKIP_INTERVAL);
+            if(block < skipCount && skipDocs.get(block) < target) {
+                block = firstBlockReaching(block, target);
+            }
+            shallowBlock = block;
+            return block < skipCount ? skipDocs.get(block) : lastDoc;
+        }
+
+        public int shallowMaxRank() {
+            return shallowBlock < size / SKIP_INTERVAL ? skipMaxRanks.get(shallowBlock) : tailMaxRank;
+        }
+
+        public int nextDoc() {
+            if(read == size) {
+                return doc = NO_MORE_DOCS;
+            }
+            if(position > windowLimit) {
+                fillWindow();
+            }
+            doc = Math.max(doc, 0) + readVarInt();
+            rank = readVarInt();
+            read++;
+            return doc;
+        }
+
+        public int advance(int target) {
+            if(target == NO_MORE_DOCS || target > lastDoc) {
+                return doc = NO_MORE_DOCS;
+            }
+            if(doc >= target) {
+                return doc;
+            }
+            skipTo(target);
+            while(doc < target) {
+                nextDoc();
+            }
+            return doc;
+        }
+
+        private void skipTo(int target) {
+            int block = read / SKIP_INTERVAL;
+            if(block >= size / SKIP_INTERVAL || skipDocs.get(block) >= target) {
+                return;
+            }
+            int last = firstBlockReaching(block, target) - 1;
+            position = skipOffsets.get(last);
+            doc = skipDocs.get(last);
+            read = (last + 1) * SKIP_INTERVAL;
+        }
+
+        /**
+         * First block from {@code block} on whose last page id is at least {@code target}, or the
+         * number of full blocks if there is none. The last page id of {@code block} is below the target.
+         */
+        private int firstBlockReaching(int block, int target) {
+            int skipCount = size / SKIP_INTERVAL;
+            int low = block;
+            int step = 1;
+            while(low + step < skipCount && skipDocs.get(low + step) < target) {
+                low += step;
+                step <<= 1;
+            }
+            int high = Math.min(low + step, skipCount);
+            while(low + 1 < high) {
+                int middle = (low + high) >>> 1;
+                if(skipDocs.get(middle) < target) {
+                    low = middle;
+                } else {
+                    high = middle;
+                }
+            }
+            return high;
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = window[position++ - windowStart];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while(b < 0);
+            return value;
+        }
+
+        private void fillWindow() {
+            if(window == null) {
+                window = new byte[Math.min(length, WINDOW_BYTES)];
+            }
+            int end = Math.min(length, position + window.length);
+            data.get(position, window, 0, end - position);
+            windowStart = position;
+            windowLimit = end == length ? Integer.MAX_VALUE : end - MAX_POSTING_BYTES;
+        }
+    }
+}
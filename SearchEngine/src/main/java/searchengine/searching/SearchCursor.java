@@ -0,0 +1,29 @@
+package searchengine.searching;
+
+import lombok.Data;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+@Data
+public class SearchCursor {
+    private final String candidateSetId;
+    private final int offset;
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((candidateSetId + ":" + offset).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static SearchCursor decode(String cursor) {
+        if(cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                    .split(":");
+            return parts.length == 2 ? new SearchCursor(parts[0], Integer.parseInt(parts[1])) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
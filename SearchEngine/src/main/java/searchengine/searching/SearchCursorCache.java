@@ -0,0 +1,37 @@
+package searchengine.searching;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import searchengine.config.Config;
+import java.util.*;
+
+/**
+ * Candidate sets behind search cursors. Every set is kept with the query and site it was found
+ * for, and is only returned for the same ones, so a cursor cannot page through another search.
+ */
+@Component
+@RequiredArgsConstructor
+public class SearchCursorCache {
+    private final Config config;
+    private final Map<String, Entry> candidateSets = new LinkedHashMap<>(16, 0.75f, true);
+
+    public synchronized String put(String query, String site, CandidateSet candidateSet) {
+        String id = UUID.randomUUID().toString();
+        candidateSets.put(id, new Entry(query, site, candidateSet));
+        Iterator<String> iterator = candidateSets.keySet().iterator();
+        while(candidateSets.size() > config.getCursorCacheSize()) {
+            iterator.next();
+            iterator.remove();
+        }
+        return id;
+    }
+
+    public synchronized CandidateSet get(String id, String query, String site) {
+        Entry entry = candidateSets.get(id);
+        return entry != null && entry.query().equals(query) && Objects.equals(entry.site(), site) ?
+                entry.candidateSet() : null;
+    }
+
+    private record Entry(String query, String site, CandidateSet candidateSet) {
+    }
+}
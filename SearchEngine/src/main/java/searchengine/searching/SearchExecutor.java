@@ -0,0 +1,53 @@
+package searchengine.searching;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+import searchengine.config.Config;
+import java.util.concurrent.*;
+
+/**
+ * Runs the per-site parts of a search concurrently on a dedicated pool, so an all-sites
+ * search costs about the slowest site instead of the sum of all of them.
+ */
+@Component
+public class SearchExecutor {
+    private final ExecutorService executor;
+
+    public SearchExecutor(Config config) {
+        Integer configured = config.getSearchThreads();
+        int threads = configured == null || configured <= 0 ?
+                Runtime.getRuntime().availableProcessors() : configured;
+        executor = Executors.newFixedThreadPool(threads, Thread.ofPlatform().name("search-", 0).daemon().factory());
+    }
+
+    public <T> Future<T> submit(Callable<T> task) {
+        return executor.submit(task);
+    }
+
+    /**
+     * Waits for {@code future} until {@code deadline}, a {@link System#nanoTime()} value.
+     * A task that misses the deadline is interrupted and null is returned.
+     */
+    public <T> T await(Future<T> future, long deadline) {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            return null;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,74 @@
+package searchengine.searching;
+
+import lombok.Getter;
+import searchengine.lemma.*;
+import java.util.*;
+import java.util.regex.*;
+
+/**
+ * Parsed search query: the bag of lemmas used for intersection plus positional constraints.
+ * Quoted text becomes a phrase, {@code a NEAR/k b} requires both words within k words.
+ */
+@Getter
+public class SearchQuery {
+    private static final Pattern TERM_PATTERN = Pattern.compile("\"([^\"]*)\"?|NEAR/(\\d{1,6})|[^\\s\"]+");
+
+    private final Set<String> lemmas;
+    private final List<PositionConstraint> constraints;
+
+    private SearchQuery(Set<String> lemmas, List<PositionConstraint> constraints) {
+        this.lemmas = lemmas;
+        this.constraints = constraints;
+    }
+
+    public static SearchQuery parse(String query, Lemmatizer lemmatizer) {
+        Set<String> lemmas = new HashSet<>();
+        List<PositionConstraint> constraints = new ArrayList<>();
+        String left = null;
+        int distance = -1;
+
+        Matcher matcher = TERM_PATTERN.matcher(query);
+        while(matcher.find()) {
+            if(matcher.group(2) != null) {
+                distance = Integer.parseInt(matcher.group(2));
+                continue;
+            }
+            boolean phrase = matcher.group(1) != null;
+            List<Term> terms = terms(lemmatizer.analyzeText(phrase ? matcher.group(1) : matcher.group()));
+            if(!terms.isEmpty()) {
+                if(phrase && terms.size() > 1) {
+                    constraints.add(new PhraseConstraint(
+                            terms.stream().map(Term::lemma).toList(),
+                            terms.stream().map(Term::position).toList()));
+                }
+                if(distance >= 0 && left != null) {
+                    constraints.add(new NearConstraint(left, terms.get(0).lemma(), distance));
+                }
+                terms.forEach(term -> lemmas.add(term.lemma()));
+                left = terms.get(terms.size() - 1).lemma();
+            }
+            distance = -1;
+        }
+        return new SearchQuery(lemmas, constraints);
+    }
+
+    public Set<String> getConstraintLemmas() {
+        Set<String> constraintLemmas = new HashSet<>();
+        constraints.forEach(constraint -> constraintLemmas.addAll(constraint.lemmas()));
+        return constraintLemmas;
+    }
+
+    private static List<Term> terms(Map<String, LemmaOccurrences> occurrences) {
+        List<Term> terms = new ArrayList<>();
+        occurrences.forEach((lemma, occurrence) -> {
+            for(int position : occurrence.getPositions()) {
+                terms.add(new Term(lemma, position));
+            }
+        });
+        terms.sort(Comparator.comparingInt(Term::position));
+        return terms;
+    }
+
+    private record Term(String lemma, int position) {
+    }
+}
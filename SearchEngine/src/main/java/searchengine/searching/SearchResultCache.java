@@ -0,0 +1,90 @@
+package searchengine.searching;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import searchengine.config.Config;
+import searchengine.dto.statistics.SearchCacheStatistics;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+@RequiredArgsConstructor
+public class SearchResultCache {
+    private final Config config;
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private long weight;
+
+    public CandidateSet get(SearchQuery query, String site, Map<Integer, Long> generations) {
+        Key key = key(query, site);
+        synchronized(this) {
+            Entry entry = entries.get(key);
+            if(entry != null && !entry.generations().equals(generations)) {
+                remove(key);
+                invalidations.incrementAndGet();
+                entry = null;
+            }
+            if(entry == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            return entry.candidateSet();
+        }
+    }
+
+    public void put(SearchQuery query, String site, Map<Integer, Long> generations, CandidateSet candidateSet) {
+        Key key = key(query, site);
+        int entryWeight = candidateSet.getPages().size() + 1;
+        if(entryWeight > config.getSearchCacheCapacity()) {
+            return;
+        }
+        synchronized(this) {
+            remove(key);
+            entries.put(key, new Entry(Map.copyOf(generations), candidateSet));
+            weight += entryWeight;
+
+            Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+            while(weight > config.getSearchCacheCapacity()) {
+                weight -= weightOf(iterator.next().getValue());
+                iterator.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    public synchronized SearchCacheStatistics getStatistics() {
+        SearchCacheStatistics statistics = new SearchCacheStatistics();
+        statistics.setHits(hits.get());
+        statistics.setMisses(misses.get());
+        statistics.setEvictions(evictions.get());
+        statistics.setInvalidations(invalidations.get());
+        statistics.setEntries(entries.size());
+        statistics.setWeight(weight);
+        return statistics;
+    }
+
+    private void remove(Key key) {
+        Entry entry = entries.remove(key);
+        if(entry != null) {
+            weight -= weightOf(entry);
+        }
+    }
+
+    private static Key key(SearchQuery query, String site) {
+        return new Key(new TreeSet<>(query.getLemmas()), query.getConstraints(), site);
+    }
+
+    private static int weightOf(Entry entry) {
+        return entry.candidateSet().getPages().size() + 1;
+    }
+
+    private record Key(SortedSet<String> lemmas, List<PositionConstraint> constraints, String site) {
+    }
+
+    private record Entry(Map<Integer, Long> generations, CandidateSet candidateSet) {
+    }
+}
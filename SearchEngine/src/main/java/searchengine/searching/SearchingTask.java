@@ -1,64 +1,131 @@
 package searchengine.searching;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import searchengine.model.*;
-import searchengine.repositories.*;
 import java.util.*;
-import java.util.concurrent.RecursiveTask;
-import java.util.stream.Collectors;
+import java.util.concurrent.*;
 
+/**
+ * Finds the {@code limit} best pages of one site by BM25 with block-max AND: once {@code limit} pages
+ * are kept, blocks whose summed upper bounds cannot beat the weakest of them are skipped in all
+ * posting lists without being decoded. Matches in skipped blocks are not counted, so the count is
+ * then extrapolated from the examined part and marked as not exact. With phrase or NEAR
+ * constraints the whole intersection is read for the positions anyway, and the count stays exact.
+ * An interrupted task stops with a {@link CancellationException}.
+ */
+@Slf4j
 @RequiredArgsConstructor
-public class SearchingTask extends RecursiveTask<List<PageEntity>> {
+public class SearchingTask extends RecursiveTask<SiteMatches> {
+    private static final int POSITION_BATCH = 1000;
+    private static final int INTERRUPT_CHECK_MASK = 0xFFF;
+
     private final SiteEntity siteEntity;
-    private final PageRepository pageRepository;
-    private final IndexRepository indexRepository;
-    private final LemmaRepository lemmaRepository;
-    private final Map<String, Integer> lemmaRankMap;
+    private final InvertedIndex invertedIndex;
+    private final SearchQuery query;
+    private final PositionLoader positionLoader;
     private final double maxLemmaPercentage;
-    private final Map<PageEntity, Double> pageRelevanceMap;
+    private final int limit;
 
     @Override
-    protected List<PageEntity> compute() {
-        long totalPageCount = pageRepository.countBySite(siteEntity);
-        List<LemmaEntity> lemmaEntities = lemmaRankMap.keySet().stream()
-                .map(lemma -> lemmaRepository.findOneBySiteAndLemma(siteEntity, lemma))
+    protected SiteMatches compute() {
+        int siteId = siteEntity.getId();
+        int totalPageCount = invertedIndex.getPageCount(siteId);
+        double averageLength = invertedIndex.getAverageDocLength(siteId);
+        List<PostingList> postingLists = query.getLemmas().stream()
+                .map(lemma -> invertedIndex.getPostings(siteId, lemma))
                 .filter(Objects::nonNull)
-                .filter(lemmaEntity ->
-                        ((double) lemmaEntity.getFrequency() / totalPageCount)
+                .filter(postingList ->
+                        ((double) postingList.size() / totalPageCount)
                                 <= maxLemmaPercentage)
-                .sorted(Comparator.comparing(LemmaEntity::getFrequency))
                 .toList();
+        long positionStart = System.nanoTime();
+        Set<Integer> allowed = query.getConstraints().isEmpty() ? null : matchPositions(postingLists);
+        long positionNanos = System.nanoTime() - positionStart;
 
-        if (lemmaEntities.isEmpty()) {
-            return new ArrayList<>();
+        PostingIntersector intersector = new PostingIntersector(postingLists);
+        PostingList.Cursor[] cursors = intersector.getCursors();
+        Bm25[] weights = new Bm25[cursors.length];
+        for(int i = 0; i < cursors.length; i++) {
+            weights[i] = new Bm25(totalPageCount, cursors[i].postingList().size(), averageLength);
         }
 
-        LemmaEntity firstLemma = lemmaEntities.get(0);
-        List<IndexEntity> indexEntities = indexRepository.findByLemma(firstLemma);
-        List<PageEntity> pageEntities = indexEntities.stream()
-                .map(IndexEntity::getPage)
-                .collect(Collectors.toList());
+        int capacity = Math.max(1, limit);
+        PriorityQueue<FoundPage> heap = new PriorityQueue<>(capacity, CandidateSet.RANKING.reversed());
+        int[] matches = new int[1];
+        long[] scoringNanos = new long[1];
+        long matchStart = System.nanoTime();
+        intersector.forEachMatch((doc, matched) -> {
+            if(allowed != null && !allowed.contains(doc)) {
+                return;
+            }
+            if((++matches[0] & INTERRUPT_CHECK_MASK) == 0) {
+                checkInterrupted();
+            }
 
-        for (int i = 1; i < lemmaEntities.size(); i++) {
-            LemmaEntity lemmaEntity = lemmaEntities.get(i);
-            List<LemmaEntity> remainingLemmas = lemmaEntities.subList(i, lemmaEntities.size());
+            long scoringStart = System.nanoTime();
+            int length = invertedIndex.getDocLength(doc);
+            double pageRel = 0;
+            for(int i = 0; i < matched.length; i++) {
+                pageRel += weights[i].score(matched[i].rank(), length);
+            }
+            FoundPage page = new FoundPage(doc, siteEntity, pageRel);
+            if(heap.size() < capacity) {
+                heap.add(page);
+            } else if(CandidateSet.RANKING.compare(page, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(page);
+            }
+            scoringNanos[0] += System.nanoTime() - scoringStart;
+        }, blocks -> {
+            if(heap.size() < capacity) {
+                return false;
+            }
+            double bound = 0;
+            for(int i = 0; i < blocks.length; i++) {
+                bound += weights[i].upperBound(blocks[i].shallowMaxRank());
+            }
+            return bound < heap.peek().getRelevance();
+        });
+        long intersectNanos = System.nanoTime() - matchStart - scoringNanos[0];
 
-            pageEntities = pageEntities.stream()
-                    .filter(pageEntity -> indexRepository.findByLemmaAndPage(lemmaEntity, pageEntity) != null)
-                    .filter(pageEntity -> remainingLemmas.stream()
-                            .allMatch(lemma -> indexRepository.findByLemmaAndPage(lemma, pageEntity) != null))
-                    .toList();
-        }
+        int skipped = intersector.getSkipped();
+        int examined = intersector.getExamined();
+        boolean exactCount = skipped == 0 || allowed != null;
+        int count = allowed != null ? allowed.size()
+                : matches[0] + (exactCount ? 0 : (int) Math.round((double) skipped * matches[0] / Math.max(1, examined)));
+        log.debug(String.format("Site %s: %d matches, %d of %d postings skipped by block-max bound",
+                siteEntity.getName(), matches[0], skipped, skipped + examined));
+        return new SiteMatches(new ArrayList<>(heap), count, exactCount, positionNanos, intersectNanos,
+                scoringNanos[0]);
+    }
 
-        for(PageEntity pageEntity : pageEntities) {
-            double pageRel = lemmaEntities.stream()
-                    .mapToDouble(lemmaEntity ->
-                            indexRepository.findByLemmaAndPage(lemmaEntity, pageEntity).getRank()
-                    )
-                    .sum();
-            pageRelevanceMap.put(pageEntity, pageRel);
+    private Set<Integer> matchPositions(List<PostingList> postingLists) {
+        long start = System.currentTimeMillis();
+        List<Integer> candidates = new ArrayList<>();
+        new PostingIntersector(postingLists).forEachMatch((doc, cursors) -> candidates.add(doc));
+
+        Set<String> lemmas = query.getConstraintLemmas();
+        Set<Integer> matched = new HashSet<>();
+        for(int from = 0; from < candidates.size(); from += POSITION_BATCH) {
+            checkInterrupted();
+            List<Integer> batch = candidates.subList(from, Math.min(from + POSITION_BATCH, candidates.size()));
+            Map<Integer, Map<String, int[]>> positions = positionLoader.load(batch, lemmas);
+            for(Integer pageId : batch) {
+                Map<String, int[]> pagePositions = positions.getOrDefault(pageId, Map.of());
+                if(query.getConstraints().stream().allMatch(constraint -> constraint.matches(pagePositions))) {
+                    matched.add(pageId);
+                }
+            }
         }
+        log.debug(String.format("Checked positions of %d candidates in %d ms, %d matched", candidates.size(),
+                System.currentTimeMillis() - start, matched.size()));
+        return matched;
+    }
 
-        return pageEntities;
+    private void checkInterrupted() {
+        if(Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Search of site " + siteEntity.getName() + " cancelled");
+        }
     }
 }
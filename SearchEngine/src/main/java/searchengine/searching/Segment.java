@@ -0,0 +1,210 @@
+package searchengine.searching;
+
+import java.io.IOException;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * Immutable on-disk index of one site, read through a memory mapping. Posting lists are looked up
+ * in the sorted lemma dictionary and read in place, so opening a segment costs a mapping and
+ * a header read, whatever its size.
+ * <pre>
+ * header     magic, version, page count, total length, lemma count, norm base, norm count,
+ *            offsets of the dictionary, lemma bytes, norms and postings
+ * dictionary (lemma offset, lemma length, posting offset) per lemma, sorted by UTF-8 bytes
+ * lemmas     UTF-8 bytes of all lemmas
+ * norms      token count of every page id from norm base on, 0 for ids of other sites
+ * postings   {@link PostingList#writeTo} of every lemma
+ * </pre>
+ * All numbers are little-endian ints or longs, so a segment is limited to 2 GB.
+ */
+final class Segment {
+    private static final int MAGIC = 0x5345474D;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 48;
+    private static final int ENTRY_BYTES = 12;
+
+    private final Path path;
+    private final ByteBuffer buffer;
+    private final int pageCount;
+    private final long totalLength;
+    private final int lemmaCount;
+    private final int normBase;
+    private final int normCount;
+    private final int dictionaryOffset;
+    private final int lemmasOffset;
+    private final int normsOffset;
+
+    private Segment(Path path, ByteBuffer buffer) throws IOException {
+        this.path = path;
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if(buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a segment: " + path);
+        }
+        pageCount = buffer.getInt(8);
+        totalLength = buffer.getLong(12);
+        lemmaCount = buffer.getInt(20);
+        normBase = buffer.getInt(24);
+        normCount = buffer.getInt(28);
+        dictionaryOffset = buffer.getInt(32);
+        lemmasOffset = buffer.getInt(36);
+        normsOffset = buffer.getInt(40);
+    }
+
+    static Segment open(Path path) throws IOException {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new Segment(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes the posting lists of {@code lemmas} and the token counts of their pages to {@code path},
+     * forces the file to disk and maps it.
+     */
+    static Segment write(Path path, Collection<String> lemmas, Function<String, PostingList> postings,
+                         IntUnaryOperator docLengths, int pageCount, long totalLength) throws IOException {
+        List<byte[]> names = new ArrayList<>();
+        List<PostingList> lists = new ArrayList<>();
+        lemmas.stream()
+                .map(lemma -> lemma.getBytes(StandardCharsets.UTF_8))
+                .sorted(Arrays::compareUnsigned)
+                .forEach(name -> {
+                    PostingList postingList = postings.apply(new String(name, StandardCharsets.UTF_8));
+                    if(postingList != null) {
+                        names.add(name);
+                        lists.add(postingList);
+                    }
+                });
+
+        BitSet docs = new BitSet();
+        long lemmaBytes = 0;
+        long postingBytes = 0;
+        for(int i = 0; i < lists.size(); i++) {
+            PostingList.Cursor cursor = lists.get(i).cursor();
+            while(cursor.nextDoc() != PostingList.NO_MORE_DOCS) {
+                docs.set(cursor.doc());
+            }
+            lemmaBytes += names.get(i).length;
+            postingBytes += lists.get(i).serializedSize();
+        }
+        int normBase = docs.isEmpty() ? 0 : docs.nextSetBit(0);
+        int normCount = docs.isEmpty() ? 0 : docs.length() - normBase;
+
+        long dictionaryOffset = HEADER_BYTES;
+        long lemmasOffset = dictionaryOffset + (long) lists.size() * ENTRY_BYTES;
+        long normsOffset = (lemmasOffset + lemmaBytes + 3) & ~3L;
+        long postingsOffset = normsOffset + normCount * 4L;
+        long size = postingsOffset + postingBytes;
+        if(size > Integer.MAX_VALUE) {
+            throw new IOException("Segment of " + size + " bytes exceeds 2 GB");
+        }
+
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer target = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            target.order(ByteOrder.LITTLE_ENDIAN);
+            int entry = (int) dictionaryOffset;
+            int lemma = (int) lemmasOffset;
+            int posting = (int) postingsOffset;
+            for(int i = 0; i < lists.size(); i++, entry += ENTRY_BYTES) {
+                byte[] name = names.get(i);
+                target.putInt(entry, lemma - (int) lemmasOffset)
+                        .putInt(entry + 4, name.length)
+                        .putInt(entry + 8, posting)
+                        .put(lemma, name);
+                lemma += name.length;
+                lists.get(i).writeTo(target, posting);
+                posting += lists.get(i).serializedSize();
+            }
+            for(int pageId = docs.nextSetBit(0); pageId >= 0; pageId = docs.nextSetBit(pageId + 1)) {
+                target.putInt((int) normsOffset + (pageId - normBase) * 4, docLengths.applyAsInt(pageId));
+            }
+            target.putInt(0, MAGIC)
+                    .putInt(4, VERSION)
+                    .putInt(8, pageCount)
+                    .putLong(12, totalLength)
+                    .putInt(20, lists.size())
+                    .putInt(24, normBase)
+                    .putInt(28, normCount)
+                    .putInt(32, (int) dictionaryOffset)
+                    .putInt(36, (int) lemmasOffset)
+                    .putInt(40, (int) normsOffset)
+                    .putInt(44, (int) postingsOffset);
+            target.force();
+            return new Segment(path, target);
+        }
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    int getPageCount() {
+        return pageCount;
+    }
+
+    long getTotalLength() {
+        return totalLength;
+    }
+
+    int getLemmaCount() {
+        return lemmaCount;
+    }
+
+    PostingList getPostings(String lemma) {
+        byte[] key = lemma.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = lemmaCount - 1;
+        while(low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compare(middle, key);
+            if(comparison < 0) {
+                low = middle + 1;
+            } else if(comparison > 0) {
+                high = middle - 1;
+            } else {
+                return PostingList.read(buffer, buffer.getInt(dictionaryOffset + middle * ENTRY_BYTES + 8));
+            }
+        }
+        return null;
+    }
+
+    void forEachLemma(Consumer<String> consumer) {
+        byte[] name = new byte[64];
+        for(int i = 0; i < lemmaCount; i++) {
+            int entry = dictionaryOffset + i * ENTRY_BYTES;
+            int length = buffer.getInt(entry + 4);
+            if(name.length < length) {
+                name = new byte[length];
+            }
+            buffer.get(lemmasOffset + buffer.getInt(entry), name, 0, length);
+            consumer.accept(new String(name, 0, length, StandardCharsets.UTF_8));
+        }
+    }
+
+    int getNormBase() {
+        return normBase;
+    }
+
+    IntBuffer getNorms() {
+        return buffer.slice(normsOffset, normCount * 4).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    private int compare(int index, byte[] key) {
+        int entry = dictionaryOffset + index * ENTRY_BYTES;
+        int offset = lemmasOffset + buffer.getInt(entry);
+        int length = buffer.getInt(entry + 4);
+        int common = Math.min(length, key.length);
+        for(int i = 0; i < common; i++) {
+            int difference = (buffer.get(offset + i) & 0xFF) - (key[i] & 0xFF);
+            if(difference != 0) {
+                return difference;
+            }
+        }
+        return length - key.length;
+    }
+}
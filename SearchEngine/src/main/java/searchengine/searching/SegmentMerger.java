@@ -0,0 +1,48 @@
+package searchengine.searching;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.config.Config;
+import java.util.concurrent.*;
+
+/**
+ * Folds in-memory index changes into new segments in the background, once a site has been quiet
+ * for {@code segmentMergeDelay} ms, and writes all pending changes on shutdown.
+ */
+@Slf4j
+@Component
+public class SegmentMerger {
+    private final InvertedIndex invertedIndex;
+    private final ScheduledExecutorService scheduler;
+
+    public SegmentMerger(InvertedIndex invertedIndex, SegmentStore segmentStore, Config config) {
+        this.invertedIndex = invertedIndex;
+        if(!segmentStore.isEnabled()) {
+            scheduler = null;
+            return;
+        }
+        long delay = config.getSegmentMergeDelay() == null ? 30000 : config.getSegmentMergeDelay();
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("segment-merger").daemon().factory());
+        scheduler.scheduleWithFixedDelay(() -> merge(TimeUnit.MILLISECONDS.toNanos(delay)),
+                delay, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void merge(long quietNanos) {
+        try {
+            invertedIndex.persistChanged(quietNanos);
+        } catch (Exception e) {
+            log.error("Segment merge failed: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if(scheduler != null) {
+            scheduler.shutdown();
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+            merge(0);
+        }
+    }
+}
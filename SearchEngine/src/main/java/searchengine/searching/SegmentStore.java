@@ -0,0 +1,137 @@
+package searchengine.searching;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.config.Config;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ * Segment files of all sites in {@code segmentDirectory}. The manifest names the current segment
+ * of every site; a segment only becomes current once it is completely on disk, and a site is taken
+ * out of the manifest before its pages change in the database and kept out until the change is
+ * committed, so a listed segment always matches the database. Files not in the manifest are leftovers and are deleted at startup.
+ * Without a directory nothing is stored.
+ */
+@Slf4j
+@Component
+public class SegmentStore {
+    private static final String MANIFEST = "segments.properties";
+    private static final String SUFFIX = ".seg";
+
+    private final Properties manifest = new Properties();
+    private final Path directory;
+
+    public SegmentStore(Config config) {
+        String segmentDirectory = config.getSegmentDirectory();
+        directory = segmentDirectory == null || segmentDirectory.isBlank() ? null : Path.of(segmentDirectory);
+        if(directory != null) {
+            loadManifest();
+        }
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    synchronized Segment open(int siteId) {
+        String file = directory == null ? null : manifest.getProperty(String.valueOf(siteId));
+        if(file == null) {
+            return null;
+        }
+        try {
+            return Segment.open(directory.resolve(file));
+        } catch (IOException e) {
+            log.warn("Segment of site " + siteId + " is unreadable: " + e.getMessage());
+            invalidate(siteId);
+            return null;
+        }
+    }
+
+    Segment write(int siteId, SiteIndex siteIndex, DocLengths docLengths) throws IOException {
+        Path file = Files.createTempFile(directory, "site-" + siteId + "-", SUFFIX);
+        try {
+            return Segment.write(file, siteIndex.getLemmas(), siteIndex::getPostings, docLengths::get,
+                    siteIndex.getPageCount(), siteIndex.getTotalLength());
+        } catch (IOException | RuntimeException e) {
+            deleteFile(file);
+            throw e;
+        }
+    }
+
+    synchronized void commit(int siteId, Segment segment) {
+        String previous = (String) manifest.setProperty(String.valueOf(siteId),
+                segment.getPath().getFileName().toString());
+        saveManifest();
+        if(previous != null) {
+            deleteFile(directory.resolve(previous));
+        }
+    }
+
+    void discard(Segment segment) {
+        deleteFile(segment.getPath());
+    }
+
+    synchronized void invalidate(int siteId) {
+        if(directory != null && manifest.remove(String.valueOf(siteId)) != null) {
+            saveManifest();
+        }
+    }
+
+    synchronized void delete(int siteId) {
+        String file = directory == null ? null : manifest.getProperty(String.valueOf(siteId));
+        invalidate(siteId);
+        if(file != null) {
+            deleteFile(directory.resolve(file));
+        }
+    }
+
+    private void loadManifest() {
+        try {
+            Files.createDirectories(directory);
+            Path path = directory.resolve(MANIFEST);
+            if(Files.exists(path)) {
+                try(Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                    manifest.load(reader);
+                }
+            }
+            try(Stream<Path> files = Files.list(directory)) {
+                files.filter(file -> file.getFileName().toString().endsWith(SUFFIX))
+                        .filter(file -> !manifest.containsValue(file.getFileName().toString()))
+                        .forEach(this::deleteFile);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Segment directory " + directory + " is not usable", e);
+        }
+    }
+
+    private void saveManifest() {
+        try {
+            StringWriter writer = new StringWriter();
+            manifest.store(writer, null);
+            Path temporary = directory.resolve(MANIFEST + ".tmp");
+            try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                channel.write(ByteBuffer.wrap(writer.toString().getBytes(StandardCharsets.UTF_8)));
+                channel.force(true);
+            }
+            Files.move(temporary, directory.resolve(MANIFEST),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Segment manifest could not be saved", e);
+        }
+    }
+
+    private void deleteFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.debug("Segment file " + file + " is still in use and is deleted at the next start");
+        }
+    }
+}
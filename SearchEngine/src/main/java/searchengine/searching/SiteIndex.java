@@ -0,0 +1,160 @@
+package searchengine.searching;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+/**
+ * Posting lists of one site: those of its mapped segment, if any, overridden by lists changed since
+ * the segment was written. A removed lemma is overridden by an empty list. Every change bumps
+ * the version, so a segment written concurrently with a change is never taken as current.
+ */
+class SiteIndex {
+    private final Map<String, PostingList> postings = new ConcurrentHashMap<>();
+    private final AtomicInteger pageCount = new AtomicInteger();
+    private final AtomicLong totalLength = new AtomicLong();
+    private final AtomicLong version = new AtomicLong();
+    private final ReadWriteLock rebaseLock = new ReentrantReadWriteLock();
+    private volatile Segment segment;
+    private volatile long persistedVersion = -1;
+    private volatile long modifiedAt = System.nanoTime();
+    private volatile long generation;
+
+    SiteIndex(long generation) {
+        this.generation = generation;
+    }
+
+    SiteIndex(long generation, Segment segment) {
+        this.generation = generation;
+        this.segment = segment;
+        pageCount.set(segment.getPageCount());
+        totalLength.set(segment.getTotalLength());
+        persistedVersion = 0;
+    }
+
+    PostingList getPostings(String lemma) {
+        PostingList postingList = postings.get(lemma);
+        Segment current = segment;
+        if(postingList == null && current != null) {
+            postingList = current.getPostings(lemma);
+        }
+        return postingList == null || postingList.size() == 0 ? null : postingList;
+    }
+
+    void append(String lemma, int[] docs, int[] ranks, int count) {
+        change(() -> postings.compute(lemma, (key, postingList) -> {
+            PostingList base = postingList == null ? segmentPostings(lemma) : postingList;
+            return base == null ? PostingList.of(docs, ranks, count) : base.append(docs, ranks, count);
+        }));
+    }
+
+    void remove(String lemma, int doc) {
+        change(() -> postings.compute(lemma, (key, postingList) -> {
+            PostingList base = postingList == null ? segmentPostings(lemma) : postingList;
+            if(base == null) {
+                return null;
+            }
+            PostingList result = base.remove(doc);
+            return result.size() == 0 && segment == null ? null : result;
+        }));
+    }
+
+    int getPageCount() {
+        return pageCount.get();
+    }
+
+    void addPageCount(int delta) {
+        change(() -> pageCount.addAndGet(delta));
+    }
+
+    long getTotalLength() {
+        return totalLength.get();
+    }
+
+    double getAverageLength() {
+        int pages = pageCount.get();
+        return pages <= 0 ? 0 : (double) totalLength.get() / pages;
+    }
+
+    void addLength(long delta) {
+        change(() -> totalLength.addAndGet(delta));
+    }
+
+    long getGeneration() {
+        return generation;
+    }
+
+    void setGeneration(long generation) {
+        this.generation = generation;
+    }
+
+    long getVersion() {
+        return version.get();
+    }
+
+    Segment getSegment() {
+        return segment;
+    }
+
+    boolean isPersisted() {
+        return persistedVersion == version.get();
+    }
+
+    long getModifiedAt() {
+        return modifiedAt;
+    }
+
+    Set<String> getLemmas() {
+        Set<String> lemmas = new HashSet<>(postings.keySet());
+        Segment current = segment;
+        if(current != null) {
+            current.forEachLemma(lemmas::add);
+        }
+        return lemmas;
+    }
+
+    /**
+     * Makes {@code written} the base of this site if nothing changed since {@code writtenVersion}
+     * was read, and drops the overrides it contains.
+     */
+    boolean rebase(Segment written, long writtenVersion) {
+        Lock lock = rebaseLock.writeLock();
+        lock.lock();
+        try {
+            if(version.get() != writtenVersion) {
+                return false;
+            }
+            segment = written;
+            postings.clear();
+            persistedVersion = writtenVersion;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Counts as a change, so a segment being written now is not taken as current.
+     */
+    void touch() {
+        change(() -> {});
+    }
+
+    private PostingList segmentPostings(String lemma) {
+        Segment current = segment;
+        return current == null ? null : current.getPostings(lemma);
+    }
+
+    private void change(Runnable change) {
+        Lock lock = rebaseLock.readLock();
+        lock.lock();
+        try {
+            change.run();
+            modifiedAt = System.nanoTime();
+            version.incrementAndGet();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package searchengine.searching;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class SiteMatches {
+    private List<FoundPage> pages;
+    private int count;
+    private boolean exactCount;
+    private long positionNanos;
+    private long intersectNanos;
+    private long scoringNanos;
+}
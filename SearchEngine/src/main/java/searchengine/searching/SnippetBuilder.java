@@ -0,0 +1,119 @@
+package searchengine.searching;
+
+import searchengine.lemma.WordTokenizer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cuts search snippets straight from the stored lemma offsets of a page.
+ * The snippet is placed over the window of {@value #SNIPPET_LENGTH} characters that covers
+ * the most distinct query lemmas, and then the most occurrences.
+ */
+public final class SnippetBuilder {
+    public static final int SNIPPET_LENGTH = 220;
+    private static final int LEADING_CONTEXT = 40;
+
+    private SnippetBuilder() {
+    }
+
+    public static String build(String content, List<int[]> lemmaOffsets) {
+        long[] occurrences = occurrences(content, lemmaOffsets);
+        if(occurrences.length == 0) {
+            return null;
+        }
+
+        int[] inWindow = new int[lemmaOffsets.size()];
+        int distinct = 0;
+        int left = 0;
+        int bestLeft = 0;
+        int bestDistinct = 0;
+        int bestCount = 0;
+        for(int right = 0; right < occurrences.length; right++) {
+            if(inWindow[lemma(occurrences[right])]++ == 0) {
+                distinct++;
+            }
+            while(offset(occurrences[right]) - offset(occurrences[left]) > SNIPPET_LENGTH - LEADING_CONTEXT) {
+                if(--inWindow[lemma(occurrences[left++])] == 0) {
+                    distinct--;
+                }
+            }
+            int count = right - left + 1;
+            if(distinct > bestDistinct || (distinct == bestDistinct && count > bestCount)) {
+                bestLeft = left;
+                bestDistinct = distinct;
+                bestCount = count;
+            }
+        }
+
+        int start = wordStart(content, Math.max(0, offset(occurrences[bestLeft]) - LEADING_CONTEXT));
+        int end = wordEnd(content, Math.min(content.length(), start + SNIPPET_LENGTH));
+        int first = bestLeft;
+        while(first > 0 && offset(occurrences[first - 1]) >= start) {
+            first--;
+        }
+
+        StringBuilder snippet = new StringBuilder();
+        if(start > 0) {
+            snippet.append("...");
+        }
+        int position = start;
+        for(int i = first; i < occurrences.length && offset(occurrences[i]) < end; i++) {
+            int offset = offset(occurrences[i]);
+            if(offset < position) {
+                continue;
+            }
+            int tokenEnd = WordTokenizer.tokenEnd(content, offset);
+            snippet.append(content, position, offset)
+                    .append("<b>").append(content, offset, tokenEnd).append("</b>");
+            position = tokenEnd;
+        }
+        if(position < end) {
+            snippet.append(content, position, end);
+        }
+        if(end < content.length()) {
+            snippet.append("...");
+        }
+        return snippet.toString();
+    }
+
+    private static long[] occurrences(String content, List<int[]> lemmaOffsets) {
+        int total = 0;
+        for(int[] offsets : lemmaOffsets) {
+            total += offsets.length;
+        }
+        long[] occurrences = new long[total];
+        int count = 0;
+        for(int lemma = 0; lemma < lemmaOffsets.size(); lemma++) {
+            for(int offset : lemmaOffsets.get(lemma)) {
+                if(offset < content.length()) {
+                    occurrences[count++] = ((long) offset << 32) | lemma;
+                }
+            }
+        }
+        occurrences = Arrays.copyOf(occurrences, count);
+        Arrays.sort(occurrences);
+        return occurrences;
+    }
+
+    private static int offset(long occurrence) {
+        return (int) (occurrence >>> 32);
+    }
+
+    private static int lemma(long occurrence) {
+        return (int) occurrence;
+    }
+
+    private static int wordStart(String content, int position) {
+        while(position > 0 && !Character.isWhitespace(content.charAt(position - 1))) {
+            position--;
+        }
+        return position;
+    }
+
+    private static int wordEnd(String content, int position) {
+        while(position < content.length() && !Character.isWhitespace(content.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+}
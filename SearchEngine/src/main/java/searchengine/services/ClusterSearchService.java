@@ -0,0 +1,85 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import searchengine.cluster.*;
+import searchengine.config.Site;
+import searchengine.dto.search.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Search of a router node. The query is sent to the shard endpoint of every node that owns
+ * a searched site, asking each for its first {@code offset + limit} results, and the lists are
+ * merged by relevance. Relevance of a shard is relative to its own best page, so it is scaled
+ * back by the shard's maximum and divided by the maximum over all shards. Sites of a node
+ * that fails or does not answer in time are reported in {@code timedOutSites}.
+ */
+@Slf4j
+@Primary
+@Service
+@ConditionalOnProperty(prefix = "cluster", name = "router", havingValue = "true")
+@RequiredArgsConstructor
+public class ClusterSearchService implements SearchService {
+    private final ShardMap shardMap;
+    private final ShardClient shardClient;
+
+    @Override
+    public SearchResponse search(String query, Integer offset, Integer limit, String site, String cursor) {
+        String owner = site == null ? null : shardMap.ownerOf(site);
+        List<String> nodes = site == null ? shardMap.getNodes() : owner == null ? List.of() : List.of(owner);
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("query", query);
+        parameters.put("offset", "0");
+        parameters.put("limit", String.valueOf(offset + limit));
+        parameters.put("site", site);
+        Map<String, CompletableFuture<SearchResponse>> futures = new LinkedHashMap<>();
+        nodes.forEach(node -> futures.put(node,
+                shardClient.get(node, "/api/shard/search", parameters, SearchResponse.class)));
+
+        List<SearchData> merged = new ArrayList<>();
+        List<String> timedOutSites = new ArrayList<>();
+        double maxRelevance = 0;
+        int count = 0;
+        boolean exactCount = true;
+        for(Map.Entry<String, CompletableFuture<SearchResponse>> entry : futures.entrySet()) {
+            SearchResponse shardResponse = shardClient.await(entry.getValue());
+            if(shardResponse == null || !shardResponse.isResult()) {
+                log.warn(String.format("Node %s did not answer search for '%s'", entry.getKey(), query));
+                shardMap.sitesOf(entry.getKey()).stream()
+                        .map(Site::getUrl)
+                        .filter(url -> site == null || url.equals(site))
+                        .forEach(timedOutSites::add);
+                continue;
+            }
+            double shardMax = shardResponse.getMaxRelevance() == null ? 1.0 : shardResponse.getMaxRelevance();
+            shardResponse.getData().forEach(data -> data.setRelevance(data.getRelevance() * shardMax));
+            maxRelevance = Math.max(maxRelevance, shardMax);
+            merged.addAll(shardResponse.getData());
+            count += shardResponse.getCount();
+            exactCount &= !Boolean.FALSE.equals(shardResponse.getExactCount());
+            if(shardResponse.getTimedOutSites() != null) {
+                timedOutSites.addAll(shardResponse.getTimedOutSites());
+            }
+        }
+
+        merged.sort(Comparator.comparingDouble(SearchData::getRelevance).reversed());
+        List<SearchData> page = merged.subList(Math.min(offset, merged.size()),
+                Math.min(offset + limit, merged.size()));
+        for(SearchData data : page) {
+            data.setRelevance(maxRelevance > 0 ? data.getRelevance() / maxRelevance : 0);
+        }
+
+        SearchResponse response = new SearchResponse();
+        response.setResult(true);
+        response.setCount(count);
+        response.setExactCount(exactCount);
+        response.setData(new ArrayList<>(page));
+        response.setMaxRelevance(maxRelevance);
+        response.setTimedOutSites(timedOutSites);
+        return response;
+    }
+}
@@ -0,0 +1,84 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import searchengine.cluster.*;
+import searchengine.config.Site;
+import searchengine.dto.statistics.*;
+import searchengine.model.Status;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Statistics of a router node: the statistics of every node summed up. Sites of a node
+ * that does not answer are listed as failed.
+ */
+@Slf4j
+@Primary
+@Service
+@ConditionalOnProperty(prefix = "cluster", name = "router", havingValue = "true")
+@RequiredArgsConstructor
+public class ClusterStatisticsService implements StatisticsService {
+    private final ShardMap shardMap;
+    private final ShardClient shardClient;
+
+    private static final String NODE_UNAVAILABLE_MESSAGE = "Узел кластера %s недоступен";
+
+    @Override
+    public StatisticsResponse getStatistics() {
+        Map<String, CompletableFuture<StatisticsResponse>> futures = new LinkedHashMap<>();
+        shardMap.getNodes().forEach(node -> futures.put(node,
+                shardClient.get(node, "/api/shard/statistics", Map.of(), StatisticsResponse.class)));
+
+        TotalStatistics total = new TotalStatistics();
+        List<DetailedStatisticsItem> detailed = new ArrayList<>();
+        SearchCacheStatistics searchCache = new SearchCacheStatistics();
+        for(Map.Entry<String, CompletableFuture<StatisticsResponse>> entry : futures.entrySet()) {
+            StatisticsResponse nodeResponse = shardClient.await(entry.getValue());
+            if(nodeResponse == null || !nodeResponse.isResult()) {
+                log.warn(String.format("Node %s did not answer statistics", entry.getKey()));
+                for(Site site : shardMap.sitesOf(entry.getKey())) {
+                    detailed.add(unavailable(site, entry.getKey()));
+                }
+                continue;
+            }
+            StatisticsData data = nodeResponse.getStatistics();
+            total.setSites(total.getSites() + data.getTotal().getSites());
+            total.setPages(total.getPages() + data.getTotal().getPages());
+            total.setLemmas(total.getLemmas() + data.getTotal().getLemmas());
+            total.setIndexing(total.isIndexing() || data.getTotal().isIndexing());
+            detailed.addAll(data.getDetailed());
+            if(data.getSearchCache() != null) {
+                SearchCacheStatistics nodeCache = data.getSearchCache();
+                searchCache.setHits(searchCache.getHits() + nodeCache.getHits());
+                searchCache.setMisses(searchCache.getMisses() + nodeCache.getMisses());
+                searchCache.setEvictions(searchCache.getEvictions() + nodeCache.getEvictions());
+                searchCache.setInvalidations(searchCache.getInvalidations() + nodeCache.getInvalidations());
+                searchCache.setEntries(searchCache.getEntries() + nodeCache.getEntries());
+                searchCache.setWeight(searchCache.getWeight() + nodeCache.getWeight());
+            }
+        }
+
+        StatisticsData data = new StatisticsData();
+        data.setTotal(total);
+        data.setDetailed(detailed);
+        data.setSearchCache(searchCache);
+        StatisticsResponse response = new StatisticsResponse();
+        response.setStatistics(data);
+        response.setResult(true);
+        return response;
+    }
+
+    private DetailedStatisticsItem unavailable(Site site, String node) {
+        DetailedStatisticsItem item = new DetailedStatisticsItem();
+        item.setUrl(site.getUrl());
+        item.setName(site.getName());
+        item.setStatus(Status.FAILED.toString());
+        item.setStatusTime(System.currentTimeMillis());
+        item.setError(String.format(NODE_UNAVAILABLE_MESSAGE, node));
+        return item;
+    }
+}
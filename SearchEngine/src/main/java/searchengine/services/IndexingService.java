@@ -3,7 +3,7 @@ package searchengine.services;
 import java.util.Map;
 
 public interface IndexingService {
-    Map<String, String> startIndexing();
+    Map<String, String> startIndexing(boolean incremental);
 
     Map<String, String> stopIndexing();
 
@@ -8,7 +8,7 @@ import java.util.concurrent.*;
 @Configuration
 public class IndexingServiceConfig {
     @Bean
-    public List<IndexingTask> tasks() {
+    public List<SiteCrawl> crawls() {
         return new CopyOnWriteArrayList<>();
     }
 }
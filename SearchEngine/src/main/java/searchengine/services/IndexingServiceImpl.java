@@ -2,17 +2,25 @@ package searchengine.services;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.*;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.*;
+import searchengine.cluster.ShardMap;
 import searchengine.config.*;
 import searchengine.indexing.*;
-import searchengine.lemma.Lemmatizer;
+import searchengine.lemma.*;
+import searchengine.metrics.CrawlMetrics;
 import searchengine.model.*;
 import searchengine.repositories.*;
+import searchengine.searching.InvertedIndex;
 import java.io.IOException;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
 @Slf4j
@@ -24,16 +32,31 @@ public class IndexingServiceImpl implements IndexingService{
     private final PageRepository pageRepository;
     private final LemmaRepository lemmaRepository;
     private final IndexRepository indexRepository;
-    private final List<IndexingTask> tasks;
+    private final BulkIndexWriter bulkIndexWriter;
+    private final IdAllocator idAllocator;
+    private final List<SiteCrawl> crawls;
     private final CancelFlag cancelFlag;
     private final Lemmatizer lemmatizer;
     private final Parser parser;
+    private final CrawlScheduler crawlScheduler;
+    private final InvertedIndex invertedIndex;
+    private final CrawlMetrics crawlMetrics;
+    private final ShardMap shardMap;
+    private final AtomicBoolean indexing = new AtomicBoolean();
+    private final Semaphore indexChanges = new Semaphore(EXCLUSIVE_PERMITS);
+
+    /**
+     * A crawl run and every single-page update hold one permit, a snapshot holds all of them,
+     * so a snapshot never overlaps another change of the index.
+     */
+    private static final int EXCLUSIVE_PERMITS = 1 << 16;
 
     private static final String CANCELED_MESSAGE;
     private static final String RUNNING_MESSAGE;
     private static final String NOT_RUNNING_MESSAGE;
     private static final String WRONG_PAGE_MESSAGE;
     private static final String PAGE_DATA_FETCH_FAILED;
+    private static final String OTHER_NODE_MESSAGE;
 
     static {
         CANCELED_MESSAGE = "Индексация остановлена пользователем";
@@ -42,15 +65,20 @@ public class IndexingServiceImpl implements IndexingService{
         WRONG_PAGE_MESSAGE = "Данная страница находится за пределами сайтов, " +
                 "указанных в конфигурационном файле";
         PAGE_DATA_FETCH_FAILED = "Не удалось получить данные страницы";
+        OTHER_NODE_MESSAGE = "Данный сайт индексирует другой узел кластера";
     }
 
     @Override
-    @Transactional
-    public Map<String, String> startIndexing() {
+    public Map<String, String> startIndexing(boolean incremental) {
         Map<String, String> response = new HashMap<>();
-        CountDownLatch latch = new CountDownLatch(1);
 
-        if(!tasks.isEmpty()) {
+        if(!indexing.compareAndSet(false, true)) {
+            response.put("result", "false");
+            response.put("error", RUNNING_MESSAGE);
+            return response;
+        }
+        if(!indexChanges.tryAcquire()) {
+            indexing.set(false);
             response.put("result", "false");
             response.put("error", RUNNING_MESSAGE);
             return response;
@@ -59,84 +87,182 @@ public class IndexingServiceImpl implements IndexingService{
         cancelFlag.setCancelled(false);
 
         new Thread(() -> {
-            deleteAllData();
-            latch.countDown();
+            List<CompletableFuture<Void>> finished = new ArrayList<>();
+            try {
+                if(!incremental) {
+                    dropUnlistedSites();
+                }
+                sites.getSites().stream()
+                        .filter(site -> shardMap.owns(site.getUrl()))
+                        .forEach(site -> finished.add(crawlSite(site, incremental)));
+            } catch (Exception e) {
+                log.error("Starting indexing failed: " + e.getMessage());
+            } finally {
+                CompletableFuture.allOf(finished.toArray(CompletableFuture[]::new))
+                        .whenComplete((result, e) -> {
+                            indexChanges.release();
+                            indexing.set(false);
+                        });
+            }
         }).start();
 
-        sites.getSites().forEach(site -> {
-            Map<String, String> visited = new ConcurrentHashMap<>();
-            Map<String, LemmaEntity> lemmas = new HashMap<>();
-            Semaphore semaphore = new Semaphore(1);
-            String url = site.getUrl();
-            String name = site.getName();
-
-            new Thread(() -> {
-                try {
-                    latch.await();
-                } catch (InterruptedException e) {
-                    throw new RuntimeException(e);
-                }
+        response.put("result", "true");
+        return response;
+    }
 
-                visited.put("/", "");
-                SiteEntity siteEntity = new SiteEntity();
-                siteEntity.setUrl(url);
-                siteEntity.setName(name);
-                siteEntity.setStatus(Status.INDEXING);
-                siteEntity.setStatusTime(Instant.now());
+    /**
+     * Takes live sites that are no longer configured, or now belong to another node, out of search
+     * and statistics and drops them in the background.
+     */
+    private void dropUnlistedSites() {
+        Set<String> listed = new HashSet<>();
+        sites.getSites().stream()
+                .map(Site::getUrl)
+                .filter(shardMap::owns)
+                .forEach(listed::add);
+        for(SiteEntity siteEntity : siteRepository.findAllByLiveTrue()) {
+            if(!listed.contains(siteEntity.getUrl())) {
+                siteEntity.setLive(false);
                 siteRepository.save(siteEntity);
+                dropGeneration(siteEntity);
+                log.info(String.format("Site %s is no longer indexed by this node, dropping it", siteEntity.getUrl()));
+            }
+        }
+    }
 
-                IndexingTask task = new IndexingTask(
-                        this,
-                        config, url, siteRepository.findOneByUrl(url), lemmatizer,
-                        siteRepository,
-                        visited, lemmas, cancelFlag, parser, 0, semaphore
-                );
-                tasks.add(task);
-                List<PageEntity> pages = task.invoke();
-                tasks.remove(task);
-
-                if(pages == null) {
-                    return;
-                }
+    /**
+     * A full crawl of a site that is already indexed is written into a shadow site row, so the
+     * live row keeps serving searches. The shadow becomes live when it reaches {@link Status#INDEXED},
+     * and the replaced generation is dropped in the background. An incremental crawl updates
+     * the live row in place. The returned future completes once the crawl and the swap are done.
+     */
+    private CompletableFuture<Void> crawlSite(Site site, boolean incremental) {
+        SiteEntity liveSite = siteRepository.findOneByUrlAndLiveTrue(site.getUrl());
+        SiteEntity siteEntity = incremental ? liveSite : null;
+        if(siteEntity == null) {
+            siteEntity = new SiteEntity();
+            siteEntity.setUrl(site.getUrl());
+            siteEntity.setName(site.getName());
+            siteEntity.setLive(liveSite == null);
+        }
+        SiteEntity replacedSite = siteEntity.getLive() ? null : liveSite;
+        siteEntity.setStatus(Status.INDEXING);
+        siteEntity.setStatusTime(Instant.now());
+        siteEntity.setLastError(null);
+        siteEntity = siteRepository.save(siteEntity);
+
+        SiteLemmas siteLemmas = new SiteLemmas(siteEntity);
+        Map<String, PageStateView> knownPages = new HashMap<>();
+        if(incremental) {
+            pageRepository.findStatesBySite(siteEntity).forEach(page -> knownPages.put(page.getPath(), page));
+            lemmaRepository.findIdsBySite(siteEntity).forEach(lemma -> siteLemmas.seed(lemma.getId(), lemma.getLemma()));
+        }
 
-                siteEntity = siteRepository.findOneByUrl(url);
-                siteEntity.setStatus(cancelFlag.isCancelled() ? Status.FAILED : Status.INDEXED);
-                siteEntity.setLastError(cancelFlag.isCancelled() ? CANCELED_MESSAGE : null);
-                siteEntity.setStatusTime(Instant.now());
-                siteRepository.save(siteEntity);
+        SiteCrawl crawl = new SiteCrawl(this, siteEntity, siteRepository, cancelFlag, siteLemmas, knownPages);
+        crawls.add(crawl);
+        CompletableFuture<Void> finished = crawl.getCompletion().thenRun(() -> {
+            crawls.remove(crawl);
+            SiteEntity indexedSite = siteRepository.findById(crawl.getSite().getId()).orElseThrow();
+            if(replacedSite != null && (crawl.isFailed() || cancelFlag.isCancelled())) {
+                SiteEntity keptSite = siteRepository.findById(replacedSite.getId()).orElseThrow();
+                keptSite.setLastError(crawl.isFailed() ? indexedSite.getLastError() : CANCELED_MESSAGE);
+                keptSite.setStatusTime(Instant.now());
+                siteRepository.save(keptSite);
+                dropGeneration(indexedSite);
+                log.info(String.format("Rebuild of site %s discarded, previous index kept", site.getName()));
+                return;
+            }
+            if(crawl.isFailed()) {
+                return;
+            }
+            if(!knownPages.isEmpty() && !cancelFlag.isCancelled()) {
+                finishRecrawl(crawl);
+            }
+
+            indexedSite.setStatus(cancelFlag.isCancelled() ? Status.FAILED : Status.INDEXED);
+            indexedSite.setLastError(cancelFlag.isCancelled() ? CANCELED_MESSAGE : null);
+            indexedSite.setStatusTime(Instant.now());
+            if(replacedSite == null) {
+                siteRepository.save(indexedSite);
+            } else {
+                SiteEntity oldSite = siteRepository.findById(replacedSite.getId()).orElseThrow();
+                oldSite.setLive(false);
+                indexedSite.setLive(true);
+                siteRepository.saveAll(List.of(oldSite, indexedSite));
+                dropGeneration(oldSite);
+            }
 
-                log.info(String.format("Site %s indexed", site.getName()));
-            }).start();
+            log.info(String.format("Site %s indexed", site.getName()));
         });
-        response.put("result", "true");
-        return response;
+        crawlScheduler.crawl(crawl);
+        return finished;
     }
 
     @Override
     public Map<String, String> stopIndexing() {
         Map<String, String> response = new HashMap<>();
-        if(tasks.isEmpty()) {
+        if(!indexing.get()) {
             response.put("result", "false");
             response.put("error", NOT_RUNNING_MESSAGE);
             return response;
         }
         cancelFlag.setCancelled(true);
+        crawlScheduler.cancel();
         response.put("result", "true");
         return response;
     }
 
     public boolean isIndexing() {
-        return !tasks.isEmpty();
+        return indexing.get();
+    }
+
+    /**
+     * Waits for nothing: returns false if a crawl run, a page update or another snapshot is in
+     * progress. Must be followed by {@link #unlockIndex()} once the snapshot is done.
+     */
+    public boolean tryLockIndex() {
+        return indexChanges.tryAcquire(EXCLUSIVE_PERMITS);
+    }
+
+    public void unlockIndex() {
+        indexChanges.release(EXCLUSIVE_PERMITS);
+    }
+
+    public boolean isCrawling(String url) {
+        return crawls.stream().anyMatch(crawl -> crawl.getSite().getUrl().equals(url));
+    }
+
+    /**
+     * Drops generations left behind by a crash. Every node has its own database, so this includes
+     * sites the node no longer owns.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void dropStaleGenerations() {
+        siteRepository.findAllByLiveFalse().forEach(this::dropGeneration);
     }
 
     @Override
     @Transactional
     public Map<String, String> indexPage(String url) {
+        if(!indexChanges.tryAcquire()) {
+            Map<String, String> response = new HashMap<>();
+            response.put("result", "false");
+            response.put("error", RUNNING_MESSAGE);
+            return response;
+        }
+        try {
+            return updatePage(url);
+        } finally {
+            releaseAfterTransaction();
+        }
+    }
+
+    private Map<String, String> updatePage(String url) {
         HashMap<String, String> response = new HashMap<>();
         SiteEntity siteEntity;
         PageEntity pageEntity;
-        Map<String, Integer> lemmaMap;
-        List<LemmaEntity> lemmaEntities = new ArrayList<>();
+        Map<String, LemmaOccurrences> lemmaMap;
+        Map<String, Long> frequencyDeltas = new HashMap<>();
         List<IndexEntity> indexEntities = new ArrayList<>();
         Site site = null;
         for(Site s : sites.getSites()) {
@@ -149,10 +275,16 @@ public class IndexingServiceImpl implements IndexingService{
             response.put("error", WRONG_PAGE_MESSAGE);
             return response;
         }
+        if(!shardMap.owns(site.getUrl())) {
+            response.put("result", "false");
+            response.put("error", OTHER_NODE_MESSAGE);
+            return response;
+        }
 
-        siteEntity = siteRepository.findOneByUrl(site.getUrl());
+        siteEntity = siteRepository.findOneByUrlAndLiveTrue(site.getUrl());
         if(siteEntity == null) {
             siteEntity = new SiteEntity();
+            siteEntity.setLive(true);
             siteEntity.setStatus(Status.INDEXED);
             siteEntity.setStatusTime(Instant.now());
             siteEntity.setLastError("");
@@ -160,14 +292,23 @@ public class IndexingServiceImpl implements IndexingService{
             siteEntity.setName(site.getName());
             siteEntity = siteRepository.save(siteEntity);
         }
-        if(siteEntity.getStatus() == Status.INDEXING) {
+        if(siteEntity.getStatus() == Status.INDEXING || isCrawling(site.getUrl())) {
             response.put("result", "false");
             response.put("error", RUNNING_MESSAGE);
             return response;
         }
 
+        int siteId = siteEntity.getId();
+        invertedIndex.beginChange(siteId);
+        afterCompletion(() -> invertedIndex.endChange(siteId));
         pageEntity = pageRepository.findOneBySiteAndPath(siteEntity, pathFromRoot(site.getUrl(), url));
         if(pageEntity != null) {
+            List<String> oldLemmas = indexRepository.findByPage(pageEntity).stream()
+                    .map(indexEntity -> indexEntity.getLemma().getLemma())
+                    .toList();
+            oldLemmas.forEach(lemma -> frequencyDeltas.merge(lemma, -1L, Long::sum));
+            int pageId = pageEntity.getId();
+            afterCommit(() -> invertedIndex.removePage(siteId, pageId, oldLemmas));
             indexRepository.deleteAllByPage(pageEntity);
             pageRepository.deleteById(pageEntity.getId());
             pageEntity = new PageEntity();
@@ -189,85 +330,228 @@ public class IndexingServiceImpl implements IndexingService{
         }
 
         pageEntity.setCode(pageData.getStatusCode());
-        pageEntity.setContent(pageData.getDocument().text());
-        pageEntity.setTitle(pageData.getDocument().title());
-        pageEntity = pageRepository.save(pageEntity);
-
-        lemmaMap = lemmatizer.lemmatizeText(pageEntity.getContent());
+        pageEntity.setContent(pageData.getText());
+        pageEntity.setTitle(pageData.getTitle());
+        pageEntity.setEtag(pageData.getEtag());
+        pageEntity.setLastModified(pageData.getLastModified());
+        pageEntity.setContentHash(ContentHash.of(pageEntity.getTitle(), pageEntity.getContent()));
+        lemmaMap = lemmatizer.analyzeText(pageEntity.getContent());
+        pageEntity.setTokenCount(lemmaMap.values().stream().mapToInt(LemmaOccurrences::getCount).sum());
+        bulkIndexWriter.insertPages(List.of(pageEntity));
+
+        lemmaMap.keySet().forEach(lemma -> frequencyDeltas.merge(lemma, 1L, Long::sum));
+        Map<String, LemmaEntity> lemmaEntities = upsertLemmas(siteEntity, frequencyDeltas);
         for(String lemma : lemmaMap.keySet()) {
-            LemmaEntity lemmaEntity = lemmaRepository.findOneBySiteAndLemma(siteEntity, lemma);
-            if(lemmaEntity == null) {
-                lemmaEntity = new LemmaEntity();
-                lemmaEntity.setSite(siteEntity);
-                lemmaEntity.setLemma(lemma);
-                lemmaEntity.setFrequency(0);
-            }
-            lemmaEntity.incrementFrequency();
-            lemmaEntities.add(lemmaEntity);
-
             IndexEntity indexEntity = new IndexEntity();
-            indexEntity.setLemma(lemmaEntity);
-            indexEntity.setRank(Double.valueOf(lemmaMap.get(lemma)));
+            indexEntity.setLemma(lemmaEntities.get(lemma));
+            indexEntity.setRank((double) lemmaMap.get(lemma).getCount());
+            indexEntity.setOffsets(lemmaMap.get(lemma).encodeOffsets());
+            indexEntity.setPositions(lemmaMap.get(lemma).encodePositions());
             indexEntity.setPage(pageEntity);
             indexEntities.add(indexEntity);
         }
-        lemmaRepository.saveAllAndFlush(lemmaEntities);
-        indexRepository.saveAllAndFlush(indexEntities);
+        bulkIndexWriter.insertIndexes(indexEntities);
+        afterCommit(() -> invertedIndex.indexPages(siteId, 1, indexEntities));
 
         response.put("result", "true");
         return response;
     }
 
-    public void savePagesData(List<PageEntity> pages, SiteEntity siteEntity, Map<String, LemmaEntity> lemmas,
-                              Semaphore semaphore) {
-        List<LemmaEntity> lemmaEntities = new ArrayList<>();
-        List<IndexEntity> indexEntities = new ArrayList<>();
+    /**
+     * Runs a change of the in-memory index once the current transaction has committed, so a
+     * rolled back page update never reaches searches.
+     */
+    private static void afterCommit(Runnable change) {
+        if(!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
 
-        pages = pageRepository.saveAllAndFlush(pages);
+    /**
+     * Keeps the permit of a page update until its transaction is committed or rolled back.
+     */
+    private void releaseAfterTransaction() {
+        afterCompletion(indexChanges::release);
+    }
 
+    /**
+     * Runs {@code action} once the current transaction is committed or rolled back, after the
+     * {@link #afterCommit} changes.
+     */
+    private static void afterCompletion(Runnable action) {
+        if(!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                action.run();
+            }
+        });
+    }
+
+    public void savePagesData(List<LemmatizedPage> lemmatizedPages, SiteEntity siteEntity, SiteLemmas siteLemmas) {
+        invertedIndex.beginChange(siteEntity.getId());
         try {
-            semaphore.acquire();
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+            writePages(lemmatizedPages, siteEntity, siteLemmas);
+        } finally {
+            invertedIndex.endChange(siteEntity.getId());
         }
-        for (PageEntity pageEntity : pages) {
-            Map<String, Integer> lemmaMap;
-            lemmaMap = lemmatizer.lemmatizeText(pageEntity.getContent());
+    }
 
-            for (String lemma : lemmaMap.keySet()) {
-                LemmaEntity lemmaEntity = lemmas.computeIfAbsent(lemma, key -> {
-                    LemmaEntity newLemma = new LemmaEntity();
-                    newLemma.setFrequency(0);
-                    newLemma.setSite(siteEntity);
-                    newLemma.setLemma(lemma);
-                    return newLemma;
-                });
-                lemmaEntity.incrementFrequency();
-                lemmaEntities.add(lemmaEntity);
+    private void writePages(List<LemmatizedPage> lemmatizedPages, SiteEntity siteEntity, SiteLemmas siteLemmas) {
+        List<IndexEntity> indexEntities = new ArrayList<>();
+        List<LemmaDelta> lemmaDeltas = new ArrayList<>();
+        Set<String> batchLemmas = new HashSet<>();
+
+        long start = System.nanoTime();
+        List<PageEntity> newPages = new ArrayList<>();
+        List<PageEntity> changedPages = new ArrayList<>();
+        lemmatizedPages.forEach(lemmatizedPage -> (lemmatizedPage.getPage().getId() == null ? newPages : changedPages)
+                .add(lemmatizedPage.getPage()));
+        if(!changedPages.isEmpty()) {
+            List<Integer> changedIds = changedPages.stream().map(PageEntity::getId).toList();
+            batchLemmas.addAll(unindexPages(siteEntity, siteLemmas, changedIds));
+            bulkIndexWriter.updatePages(changedPages);
+        }
+        bulkIndexWriter.insertPages(newPages);
 
+        lemmatizedPages.forEach(lemmatizedPage -> {
+            siteLemmas.count(lemmatizedPage.getLemmas().keySet());
+            batchLemmas.addAll(lemmatizedPage.getLemmas().keySet());
+        });
+        Map<String, LemmaEntity> lemmaEntities = siteLemmas.drain(batchLemmas, idAllocator, lemmaDeltas);
+        bulkIndexWriter.upsertLemmas(lemmaDeltas);
+
+        for (LemmatizedPage lemmatizedPage : lemmatizedPages) {
+            Map<String, LemmaOccurrences> lemmaMap = lemmatizedPage.getLemmas();
+            for (String lemma : lemmaMap.keySet()) {
                 IndexEntity indexEntity = new IndexEntity();
-                indexEntity.setLemma(lemmaEntity);
-                indexEntity.setRank(Double.valueOf(lemmaMap.get(lemma)));
-                indexEntity.setPage(pageEntity);
+                indexEntity.setLemma(lemmaEntities.get(lemma));
+                indexEntity.setRank((double) lemmaMap.get(lemma).getCount());
+                indexEntity.setOffsets(lemmaMap.get(lemma).encodeOffsets());
+                indexEntity.setPositions(lemmaMap.get(lemma).encodePositions());
+                indexEntity.setPage(lemmatizedPage.getPage());
                 indexEntities.add(indexEntity);
             }
         }
 
-        lemmaRepository.saveAllAndFlush(lemmaEntities);
-        indexRepository.saveAllAndFlush(indexEntities);
-        semaphore.release();
+        bulkIndexWriter.insertIndexes(indexEntities);
+        invertedIndex.indexPages(siteEntity.getId(), lemmatizedPages.size(), indexEntities);
+        long elapsed = System.nanoTime() - start;
+        crawlMetrics.flushed(lemmatizedPages.size(), elapsed);
+        long positionBytes = indexEntities.stream().mapToLong(indexEntity -> indexEntity.getPositions().length).sum();
+        log.debug(String.format("Saved %d pages and %d index rows (%d position bytes) in %d ms",
+                lemmatizedPages.size(), indexEntities.size(), positionBytes, elapsed / 1_000_000));
     }
 
-    @Transactional
-    private void deleteAllData() {
-        log.debug("Removing all data");
-        indexRepository.truncateTable();
-        lemmaRepository.deleteAllRecords();
-        lemmaRepository.resetAutoIncrement();
-        pageRepository.deleteAllRecords();
-        pageRepository.resetAutoIncrement();
-        siteRepository.deleteAllRecords();
-        siteRepository.resetAutoIncrement();
+    private void finishRecrawl(SiteCrawl crawl) {
+        try {
+            List<PageEntity> revalidated = crawl.drainRevalidated();
+            bulkIndexWriter.updateValidators(revalidated);
+
+            List<Integer> vanished = crawl.getVanishedPageIds();
+            for(int from = 0; from < vanished.size(); from += config.getBulkBatchSize()) {
+                List<Integer> pageIds = vanished.subList(from, Math.min(vanished.size(), from + config.getBulkBatchSize()));
+                List<LemmaDelta> lemmaDeltas = new ArrayList<>();
+                invertedIndex.beginChange(crawl.getSite().getId());
+                try {
+                    Set<String> lemmas = unindexPages(crawl.getSite(), crawl.getLemmas(), pageIds);
+                    crawl.getLemmas().drain(lemmas, idAllocator, lemmaDeltas);
+                    bulkIndexWriter.upsertLemmas(lemmaDeltas);
+                    pageRepository.deleteAllByIdInBatch(pageIds);
+                } finally {
+                    invertedIndex.endChange(crawl.getSite().getId());
+                }
+            }
+            lemmaRepository.deleteUnusedBySite(crawl.getSite().getId());
+            log.info(String.format("Site %s re-crawled: %d pages unchanged, %d revalidated, %d removed",
+                    crawl.getSite().getName(), crawl.getUnchangedCount(), revalidated.size(), vanished.size()));
+        } catch (Exception e) {
+            log.error("Re-crawl cleanup failed: " + e.getMessage() + " Site: " + crawl.getSite().getName());
+        }
+    }
+
+    /**
+     * Takes already stored pages out of the index: their lemma frequencies are counted down in
+     * {@code siteLemmas}, and their index rows and postings are dropped. The page rows stay.
+     * Returns the lemmas whose frequency changed, to be drained by the caller. Runs inside a change
+     * begun with {@link InvertedIndex#beginChange}.
+     */
+    private Set<String> unindexPages(SiteEntity siteEntity, SiteLemmas siteLemmas, List<Integer> pageIds) {
+        Map<Integer, List<String>> oldLemmas = new HashMap<>();
+        indexRepository.findLemmasByPageIdIn(pageIds).forEach(view ->
+                oldLemmas.computeIfAbsent(view.getPageId(), pageId -> new ArrayList<>()).add(view.getLemma()));
+
+        Set<String> lemmas = new HashSet<>();
+        for(Integer pageId : pageIds) {
+            List<String> pageLemmas = oldLemmas.getOrDefault(pageId, List.of());
+            siteLemmas.uncount(pageLemmas);
+            lemmas.addAll(pageLemmas);
+            invertedIndex.removePage(siteEntity.getId(), pageId, pageLemmas);
+        }
+        indexRepository.deleteAllByPageIdIn(pageIds);
+        return lemmas;
+    }
+
+    private Map<String, LemmaEntity> upsertLemmas(SiteEntity siteEntity, Map<String, Long> frequencyDeltas) {
+        Map<String, LemmaEntity> lemmaEntities = new HashMap<>();
+        lemmaRepository.findAllBySiteAndLemmaIn(siteEntity, frequencyDeltas.keySet())
+                .forEach(lemmaEntity -> lemmaEntities.put(lemmaEntity.getLemma(), lemmaEntity));
+
+        List<String> newLemmas = frequencyDeltas.keySet().stream()
+                .filter(lemma -> !lemmaEntities.containsKey(lemma))
+                .toList();
+        int id = newLemmas.isEmpty() ? 0 : idAllocator.allocate("lemma", newLemmas.size());
+        List<LemmaDelta> lemmaDeltas = new ArrayList<>();
+        for(String lemma : frequencyDeltas.keySet()) {
+            LemmaEntity lemmaEntity = lemmaEntities.get(lemma);
+            int lemmaId = lemmaEntity == null ? id++ : lemmaEntity.getId();
+            lemmaDeltas.add(new LemmaDelta(lemmaId, siteEntity.getId(), lemma, frequencyDeltas.get(lemma)));
+        }
+        bulkIndexWriter.upsertLemmas(lemmaDeltas);
+
+        if(!newLemmas.isEmpty()) {
+            lemmaRepository.findAllBySiteAndLemmaIn(siteEntity, newLemmas)
+                    .forEach(lemmaEntity -> lemmaEntities.put(lemmaEntity.getLemma(), lemmaEntity));
+        }
+        return lemmaEntities;
+    }
+
+    /**
+     * Deletes a site generation that is no longer live, in page batches so that the live
+     * generations of the same tables are never locked for long.
+     */
+    public void dropGeneration(SiteEntity siteEntity) {
+        Thread.ofVirtual().name("drop-site-" + siteEntity.getId()).start(() -> {
+            invertedIndex.beginChange(siteEntity.getId());
+            try {
+                long start = System.currentTimeMillis();
+                Pageable batch = PageRequest.of(0, config.getBulkBatchSize());
+                List<Integer> pageIds;
+                while(!(pageIds = pageRepository.findIdsBySite(siteEntity, batch)).isEmpty()) {
+                    indexRepository.deleteAllByPageIdIn(pageIds);
+                    pageRepository.deleteAllByIdInBatch(pageIds);
+                }
+                lemmaRepository.deleteAllBySiteId(siteEntity.getId());
+                siteRepository.deleteById(siteEntity.getId());
+                invertedIndex.removeSite(siteEntity.getId());
+                log.info(String.format("Dropped generation %d of site %s in %d ms", siteEntity.getId(),
+                        siteEntity.getName(), System.currentTimeMillis() - start));
+            } catch (Exception e) {
+                log.error("Dropping generation failed: " + e.getMessage() + " Site: " + siteEntity.getName());
+            } finally {
+                invertedIndex.endChange(siteEntity.getId());
+            }
+        });
     }
 
     public String pathFromRoot(String rootUrl, String url) {
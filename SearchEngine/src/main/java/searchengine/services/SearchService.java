@@ -3,5 +3,5 @@ package searchengine.services;
 import searchengine.dto.search.SearchResponse;
 
 public interface SearchService {
-    SearchResponse search(String query, Integer offset, Integer limit, String site);
+    SearchResponse search(String query, Integer offset, Integer limit, String site, String cursor);
 }
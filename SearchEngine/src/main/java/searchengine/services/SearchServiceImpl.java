@@ -1,81 +1,206 @@
 package searchengine.services;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import searchengine.cluster.ShardMap;
 import searchengine.config.Config;
 import searchengine.dto.search.*;
-import searchengine.lemma.Lemmatizer;
+import searchengine.lemma.*;
+import searchengine.metrics.SearchMetrics;
 import searchengine.model.*;
 import searchengine.repositories.*;
-import searchengine.searching.SearchingTask;
+import searchengine.searching.*;
 import java.util.*;
+import java.util.concurrent.*;
 
+@Slf4j
 @Service
+@Qualifier("local")
 @RequiredArgsConstructor
 public class SearchServiceImpl implements SearchService {
     private final SiteRepository siteRepository;
     private final PageRepository pageRepository;
-    private final LemmaRepository lemmaRepository;
     private final IndexRepository indexRepository;
+    private final InvertedIndex invertedIndex;
+    private final SearchCursorCache cursorCache;
+    private final SearchResultCache resultCache;
     private final Lemmatizer lemmatizer;
     private final Config config;
+    private final SearchMetrics metrics;
+    private final SearchExecutor searchExecutor;
+    private final ShardMap shardMap;
+
+    private static final int MIN_CANDIDATE_DEPTH = 100;
 
     @Override
-    public SearchResponse search(String query, Integer offset, Integer limit, String site) {
+    public SearchResponse search(String query, Integer offset, Integer limit, String site, String cursor) {
+        long start = System.nanoTime();
         SearchResponse response = new SearchResponse();
-        List<SiteEntity> siteEntities;
-        List<PageEntity> foundPages = new ArrayList<>();
-        Map<String, Integer> lemmas = lemmatizer.lemmatizeText(query);
-        Map<PageEntity, Double> pageRelevanceMap = new HashMap<>();
-
-        siteEntities = (site == null) ?
-                siteRepository.findAll() :
-                List.of(siteRepository.findOneByUrl(site));
+        SearchCursor searchCursor = SearchCursor.decode(cursor);
+        CandidateSet candidateSet = searchCursor == null || searchCursor.getOffset() != offset ? null
+                : cursorCache.get(searchCursor.getCandidateSetId(), query, site);
+        String candidateSetId;
 
-        for(SiteEntity siteEntity : siteEntities) {
-            SearchingTask task = new SearchingTask(
-                    siteEntity, pageRepository, indexRepository,
-                    lemmaRepository, lemmas, config.getMaxLemmaOccurrencePercentage(),
-                    pageRelevanceMap
-            );
-
-            foundPages.addAll(task.invoke());
+        if(candidateSet == null) {
+            candidateSet = findCandidates(query, site, offset + limit);
+            candidateSetId = remember(query, site, candidateSet);
+        } else {
+            candidateSetId = searchCursor.getCandidateSetId();
+        }
+        if(!candidateSet.covers(offset + limit)) {
+            candidateSet = findCandidates(query, site, Math.max(offset + limit, candidateSet.getDepth() * 2));
+            candidateSetId = remember(query, site, candidateSet);
         }
 
-        double maxRel = pageRelevanceMap.values().stream().mapToDouble(Double::valueOf).max().orElse(1.0);
-        int foundCount = foundPages.size();
-        pageRelevanceMap.replaceAll((e, v) -> pageRelevanceMap.get(e) / maxRel);
-        foundPages = foundPages.stream()
-                .sorted((page1, page2) -> pageRelevanceMap.get(page2).compareTo(pageRelevanceMap.get(page1)))
-                .skip(offset)
-                .limit(limit)
+        long phaseStart = System.nanoTime();
+        List<FoundPage> foundPages = candidateSet.top(offset, limit);
+        long snippetStart = System.nanoTime();
+        metrics.record(SearchMetrics.Phase.TOP_K, snippetStart - phaseStart);
+        Map<Integer, SearchData> results = candidateSet.getResults();
+        List<Integer> missingIds = foundPages.stream()
+                .map(FoundPage::getPageId)
+                .filter(pageId -> !results.containsKey(pageId))
                 .toList();
+        Map<Integer, PageView> pages = new HashMap<>();
+        Map<Integer, List<int[]>> offsets = new HashMap<>();
+        if(!missingIds.isEmpty()) {
+            pageRepository.findViewsByIdIn(missingIds).forEach(page -> pages.put(page.getId(), page));
+            indexRepository.findOffsetsByPageIdInAndLemmaIn(missingIds, candidateSet.getLemmas())
+                    .forEach(view -> offsets.computeIfAbsent(view.getPageId(), pageId -> new ArrayList<>())
+                            .add(LemmaOccurrences.decode(view.getOffsets())));
+        }
 
+        int foundCount = candidateSet.getCount();
+        int nextOffset = offset + foundPages.size();
         response.setResult(true);
         response.setCount(foundCount);
+        response.setExactCount(candidateSet.isExactCount());
+        response.setCursor(nextOffset < foundCount && candidateSetId != null ?
+                new SearchCursor(candidateSetId, nextOffset).encode() : null);
+        response.setMaxRelevance(candidateSet.getMaxRelevance());
+        response.setTimedOutSites(candidateSet.getTimedOutSites());
         List<SearchData> dataList = new ArrayList<>();
-        for(PageEntity page : foundPages) {
-            SearchData data = new SearchData();
-            data.setSite(page.getSite().getUrl());
-            data.setSiteName(page.getSite().getName());
-            data.setUri(page.getPath());
-            data.setTitle(titleFormat(page.getTitle()));
-            data.setSnippet(makeSnippet(page.getContent(), lemmas.keySet()));
-            data.setRelevance(pageRelevanceMap.get(page));
-            dataList.add(data);
+        for(FoundPage foundPage : foundPages) {
+            SearchData data = results.get(foundPage.getPageId());
+            PageView page = pages.get(foundPage.getPageId());
+            if(data == null && page != null) {
+                data = new SearchData();
+                data.setSite(foundPage.getSite().getUrl());
+                data.setSiteName(foundPage.getSite().getName());
+                data.setUri(page.getPath());
+                data.setTitle(titleFormat(page.getTitle()));
+                data.setSnippet(makeSnippet(page.getContent(), offsets.get(page.getId()), candidateSet.getLemmas()));
+                data.setRelevance(foundPage.getRelevance() / candidateSet.getMaxRelevance());
+                results.put(foundPage.getPageId(), data);
+            }
+            if(data != null) {
+                dataList.add(data);
+            }
         }
         response.setData(dataList);
+        long end = System.nanoTime();
+        metrics.record(SearchMetrics.Phase.SNIPPET, end - snippetStart);
+        metrics.searched(end - start);
         return response;
     }
 
+    /**
+     * Keeps a candidate set for the cursor of the next page. A set that misses timed out sites is
+     * not kept, so the next page searches them again instead of paging through a partial result.
+     */
+    private String remember(String query, String site, CandidateSet candidateSet) {
+        return candidateSet.getTimedOutSites().isEmpty() ? cursorCache.put(query, site, candidateSet) : null;
+    }
+
+    private CandidateSet findCandidates(String query, String site, int depth) {
+        List<SiteEntity> siteEntities;
+        List<FoundPage> foundPages = new ArrayList<>();
+        long phaseStart = System.nanoTime();
+        SearchQuery searchQuery = SearchQuery.parse(query, lemmatizer);
+        long lookupStart = System.nanoTime();
+        metrics.record(SearchMetrics.Phase.LEMMATIZE, lookupStart - phaseStart);
+        int candidateDepth = Math.max(depth, MIN_CANDIDATE_DEPTH);
+
+        siteEntities = ((site == null) ?
+                siteRepository.findAllByLiveTrue() :
+                Optional.ofNullable(siteRepository.findOneByUrlAndLiveTrue(site)).stream().toList()).stream()
+                .filter(siteEntity -> shardMap.owns(siteEntity.getUrl()))
+                .toList();
+
+        Map<Integer, Long> generations = new HashMap<>();
+        siteEntities.forEach(siteEntity ->
+                generations.put(siteEntity.getId(), invertedIndex.getGeneration(siteEntity.getId())));
+        CandidateSet candidateSet = resultCache.get(searchQuery, site, generations);
+        metrics.record(SearchMetrics.Phase.LOOKUP, System.nanoTime() - lookupStart);
+        if(candidateSet != null && candidateSet.covers(depth)) {
+            return candidateSet;
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getSearchTimeout());
+        Map<SiteEntity, Future<SiteMatches>> futures = new LinkedHashMap<>();
+        for(SiteEntity siteEntity : siteEntities) {
+            SearchingTask task = new SearchingTask(
+                    siteEntity, invertedIndex, searchQuery, this::loadPositions,
+                    config.getMaxLemmaOccurrencePercentage(), candidateDepth
+            );
+            futures.put(siteEntity, searchExecutor.submit(() -> {
+                SiteMatches siteMatches = task.invoke();
+                if(!searchQuery.getConstraints().isEmpty()) {
+                    metrics.record(SearchMetrics.Phase.POSITIONS, siteMatches.getPositionNanos());
+                }
+                metrics.record(SearchMetrics.Phase.INTERSECT, siteMatches.getIntersectNanos());
+                metrics.record(SearchMetrics.Phase.SCORE, siteMatches.getScoringNanos());
+                return siteMatches;
+            }));
+        }
+
+        int count = 0;
+        boolean exactCount = true;
+        List<String> timedOutSites = new ArrayList<>();
+        for(Map.Entry<SiteEntity, Future<SiteMatches>> entry : futures.entrySet()) {
+            SiteMatches siteMatches = searchExecutor.await(entry.getValue(), deadline);
+            if(siteMatches == null) {
+                timedOutSites.add(entry.getKey().getUrl());
+                metrics.timedOut();
+                continue;
+            }
+            foundPages.addAll(siteMatches.getPages());
+            count += siteMatches.getCount();
+            exactCount &= siteMatches.isExactCount();
+        }
+        candidateSet = new CandidateSet(foundPages, searchQuery.getLemmas(), count, exactCount, candidateDepth,
+                timedOutSites);
+        if(timedOutSites.isEmpty()) {
+            resultCache.put(searchQuery, site, generations, candidateSet);
+        } else {
+            log.warn(String.format("Search for '%s' timed out on %s", query, timedOutSites));
+        }
+        return candidateSet;
+    }
+
+    private Map<Integer, Map<String, int[]>> loadPositions(Collection<Integer> pageIds, Collection<String> lemmas) {
+        Map<Integer, Map<String, int[]>> positions = new HashMap<>();
+        indexRepository.findPositionsByPageIdInAndLemmaIn(pageIds, lemmas)
+                .forEach(view -> positions.computeIfAbsent(view.getPageId(), pageId -> new HashMap<>())
+                        .put(view.getLemma(), LemmaOccurrences.decode(view.getPositions())));
+        return positions;
+    }
+
     private String titleFormat(String title) {
         return title.length() <= 60 ? title
                 : title.substring(0, 60) + "...";
     }
 
+    private String makeSnippet(String content, List<int[]> lemmaOffsets, Set<String> lemmas) {
+        String snippet = lemmaOffsets == null ? null : SnippetBuilder.build(content, lemmaOffsets);
+        return snippet != null ? snippet : makeSnippet(content, lemmas);
+    }
+
     private String makeSnippet(String content, Set<String> lemmas) {
         String[] words = content.split("\\s+");
-        List<String> used = new ArrayList<>();
+        Set<String> used = new HashSet<>();
         StringBuilder result = new StringBuilder();
         boolean found = false;
         int count = 10;
@@ -100,7 +225,7 @@ public class SearchServiceImpl implements SearchService {
                     found = false;
                 }
             }
-            if(result.length() >= 220) {
+            if(result.length() >= SnippetBuilder.SNIPPET_LENGTH) {
                 return result.append("...").toString() ;
             }
         }
@@ -0,0 +1,9 @@
+package searchengine.services;
+
+import java.util.Map;
+
+public interface SnapshotService {
+    Map<String, String> exportSnapshot(String site);
+
+    Map<String, String> importSnapshot(String file);
+}
@@ -0,0 +1,145 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import searchengine.cluster.ShardMap;
+import searchengine.config.Config;
+import searchengine.model.SiteEntity;
+import searchengine.repositories.*;
+import searchengine.searching.InvertedIndexLoader;
+import java.io.IOException;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SnapshotServiceImpl implements SnapshotService {
+    private final Config config;
+    private final SiteRepository siteRepository;
+    private final IndexSnapshot indexSnapshot;
+    private final IndexingServiceImpl indexingService;
+    private final InvertedIndexLoader invertedIndexLoader;
+    private final ShardMap shardMap;
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final String RUNNING_MESSAGE;
+    private static final String SITE_NOT_FOUND_MESSAGE;
+    private static final String FILE_NOT_FOUND_MESSAGE;
+    private static final String EXPORT_FAILED_MESSAGE;
+    private static final String IMPORT_FAILED_MESSAGE;
+    private static final String SWAP_FAILED_MESSAGE;
+
+    static {
+        RUNNING_MESSAGE = "Индексация или работа со снимком уже запущена";
+        SITE_NOT_FOUND_MESSAGE = "Данный сайт не проиндексирован на этом узле";
+        FILE_NOT_FOUND_MESSAGE = "Снимок не найден";
+        EXPORT_FAILED_MESSAGE = "Не удалось сохранить снимок";
+        IMPORT_FAILED_MESSAGE = "Снимок повреждён или не может быть загружен, текущий индекс сохранён";
+        SWAP_FAILED_MESSAGE = "Снимок загружен не полностью: часть сайтов не заменена";
+    }
+
+    @Override
+    public Map<String, String> exportSnapshot(String site) {
+        Map<String, String> response = new HashMap<>();
+        List<SiteEntity> siteEntities = siteRepository.findAllByLiveTrue().stream()
+                .filter(siteEntity -> shardMap.owns(siteEntity.getUrl()))
+                .filter(siteEntity -> site == null || siteEntity.getUrl().equals(site))
+                .toList();
+        if(site != null && siteEntities.isEmpty()) {
+            return error(response, SITE_NOT_FOUND_MESSAGE);
+        }
+        if(!indexingService.tryLockIndex()) {
+            return error(response, RUNNING_MESSAGE);
+        }
+
+        try {
+            long start = System.currentTimeMillis();
+            Path directory = Files.createDirectories(Path.of(config.getSnapshotDirectory()));
+            String fileName = "snapshot-" + LocalDateTime.now().format(FILE_TIME) + ".bin.gz";
+            indexSnapshot.export(siteEntities, directory.resolve(fileName));
+            log.info(String.format("Snapshot %s of %d sites written in %d ms", fileName, siteEntities.size(),
+                    System.currentTimeMillis() - start));
+            response.put("result", "true");
+            response.put("file", fileName);
+            return response;
+        } catch (IOException | RuntimeException e) {
+            log.error("Writing snapshot failed: " + e.getMessage());
+            return error(response, EXPORT_FAILED_MESSAGE);
+        } finally {
+            indexingService.unlockIndex();
+        }
+    }
+
+    /**
+     * Loads the sites of a snapshot as shadow generations and makes each of them live only after the
+     * whole snapshot was read and its checksum matched, replacing the current generation of the site
+     * the way a full reindexing does. Shadows that did not become live are dropped, whatever failed.
+     */
+    @Override
+    public Map<String, String> importSnapshot(String file) {
+        Map<String, String> response = new HashMap<>();
+        Path directory = Path.of(config.getSnapshotDirectory()).toAbsolutePath().normalize();
+        Path path = file == null ? null : directory.resolve(file).normalize();
+        if(path == null || !directory.equals(path.getParent()) || !Files.isRegularFile(path)) {
+            return error(response, FILE_NOT_FOUND_MESSAGE);
+        }
+        if(!indexingService.tryLockIndex()) {
+            return error(response, RUNNING_MESSAGE);
+        }
+
+        long start = System.currentTimeMillis();
+        List<SiteEntity> imported = new ArrayList<>();
+        int swapped = 0;
+        boolean read = false;
+        try {
+            indexSnapshot.importFrom(path, shardMap::owns, imported);
+            read = true;
+            for(SiteEntity importedSite : imported) {
+                SiteEntity replacedSite = swapIn(importedSite);
+                swapped++;
+                if(replacedSite != null) {
+                    indexingService.dropGeneration(replacedSite);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error((read ? "Replacing sites from snapshot failed: " : "Reading snapshot failed: ")
+                    + e.getMessage() + " File: " + file);
+            return error(response, read ? SWAP_FAILED_MESSAGE : IMPORT_FAILED_MESSAGE);
+        } finally {
+            imported.subList(swapped, imported.size()).forEach(indexingService::dropGeneration);
+            indexingService.unlockIndex();
+        }
+
+        log.info(String.format("Snapshot %s of %d sites loaded in %d ms", file, imported.size(),
+                System.currentTimeMillis() - start));
+        response.put("result", "true");
+        response.put("sites", String.valueOf(imported.size()));
+        return response;
+    }
+
+    /**
+     * Makes an imported site live and returns the generation it replaced, if any.
+     */
+    private SiteEntity swapIn(SiteEntity importedSite) {
+        invertedIndexLoader.loadSite(importedSite);
+        SiteEntity oldSite = siteRepository.findOneByUrlAndLiveTrue(importedSite.getUrl());
+        importedSite.setLive(true);
+        if(oldSite == null) {
+            siteRepository.save(importedSite);
+            return null;
+        }
+        oldSite.setLive(false);
+        siteRepository.saveAll(List.of(oldSite, importedSite));
+        return oldSite;
+    }
+
+    private static Map<String, String> error(Map<String, String> response, String message) {
+        response.put("result", "false");
+        response.put("error", message);
+        return response;
+    }
+}
@@ -1,48 +1,65 @@
 package searchengine.services;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import searchengine.cluster.ShardMap;
 import searchengine.dto.statistics.*;
 import searchengine.model.SiteEntity;
 import searchengine.repositories.*;
+import searchengine.searching.SearchResultCache;
 import java.util.*;
 
 @Service
+@Qualifier("local")
 @RequiredArgsConstructor
 public class StatisticsServiceImpl implements StatisticsService {
     private final SiteRepository siteRepository;
     private final PageRepository pageRepository;
     private final LemmaRepository lemmaRepository;
     private final IndexingServiceImpl indexingService;
+    private final SearchResultCache searchResultCache;
+    private final ShardMap shardMap;
 
     @Override
     public StatisticsResponse getStatistics() {
-        List<SiteEntity> siteEntities = siteRepository.findAll();
+        List<SiteEntity> siteEntities = siteRepository.findAllByLiveTrue().stream()
+                .filter(siteEntity -> shardMap.owns(siteEntity.getUrl()))
+                .toList();
+        Map<String, SiteEntity> shadowSites = new HashMap<>();
+        siteRepository.findAllByLiveFalse().forEach(siteEntity -> shadowSites.put(siteEntity.getUrl(), siteEntity));
 
         TotalStatistics total = new TotalStatistics();
         total.setSites(siteEntities.size());
-        total.setPages((int) pageRepository.count());
-        total.setLemmas((int) lemmaRepository.count());
         total.setIndexing(indexingService.isIndexing());
 
         List<DetailedStatisticsItem> detailed = new ArrayList<>();
+        int pages = 0;
+        int lemmas = 0;
         for(SiteEntity siteEntity : siteEntities) {
             DetailedStatisticsItem item = new DetailedStatisticsItem();
-            String error = siteEntity.getLastError();
+            SiteEntity statusSite = indexingService.isCrawling(siteEntity.getUrl()) ?
+                    shadowSites.getOrDefault(siteEntity.getUrl(), siteEntity) : siteEntity;
+            String error = statusSite.getLastError();
             item.setName(siteEntity.getName());
             item.setUrl(siteEntity.getUrl());
             item.setPages((int) pageRepository.countBySite(siteEntity));
             item.setLemmas((int) lemmaRepository.countBySite(siteEntity));
-            item.setStatus(siteEntity.getStatus().toString());
+            item.setStatus(statusSite.getStatus().toString());
             item.setError(error == null ? "" : error);
-            item.setStatusTime(siteEntity.getStatusTime().toEpochMilli());
+            item.setStatusTime(statusSite.getStatusTime().toEpochMilli());
+            pages += item.getPages();
+            lemmas += item.getLemmas();
             detailed.add(item);
         }
+        total.setPages(pages);
+        total.setLemmas(lemmas);
 
         StatisticsResponse response = new StatisticsResponse();
         StatisticsData data = new StatisticsData();
         data.setTotal(total);
         data.setDetailed(detailed);
+        data.setSearchCache(searchResultCache.getStatistics());
         response.setStatistics(data);
         response.setResult(true);
         return response;
@@ -1537,7 +1537,7 @@ var API = function(){
                     if (data.offset === 0) {
                         $content.empty();
                     }
-                    $searchResults.find('.SearchResult-amount').text(result.count);
+                    $searchResults.find('.SearchResult-amount').text((result.exactCount === false ? '~' : '') + result.count);
                     var scroll = $(window).scrollTop();
                     result.data.forEach(function(page){
                         $content.append('<div class="SearchResult-block">' +
@@ -1558,7 +1558,8 @@ var API = function(){
                             .data('sendoffset', data.offset + result.data.length)
                             .data('searchquery', data.query)
                             .data('searchsite', data.site)
-                            .data('sendlimit', data.limit);
+                            .data('sendlimit', data.limit)
+                            .data('sendcursor', result.cursor);
                         $('.SearchResult-remain').text('(' + (result.count - data.offset - result.data.length) + ')')
                     } else {
                         $('.SearchResult-footer').addClass('SearchResult-footer_hide')
@@ -1749,7 +1750,8 @@ var API = function(){
                                     site: $this.data('searchsite'),
                                     query: $this.data('searchquery'),
                                     offset: $this.data('sendoffset'),
-                                    limit: $this.data('sendlimit')
+                                    limit: $this.data('sendlimit'),
+                                    cursor: $this.data('sendcursor')
                                 };
                             } else {
                                 data = {
@@ -0,0 +1,76 @@
+package searchengine.indexing;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.*;
+import org.junit.jupiter.api.Test;
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks {@link HtmlExtractor} against the Jsoup DOM it replaces on the pages in
+ * {@code src/test/resources/html}: the same title, text and absolute links.
+ */
+class HtmlExtractorTest {
+    private static final String BASE_URI = "https://example.org/blog/bikes/";
+
+    @Test
+    void articleMatchesJsoup() throws IOException {
+        assertMatchesJsoup("article.html");
+    }
+
+    @Test
+    void catalogWithBaseMatchesJsoup() throws IOException {
+        assertMatchesJsoup("catalog.html");
+    }
+
+    @Test
+    void plainPageMatchesJsoup() throws IOException {
+        assertMatchesJsoup("plain.html");
+    }
+
+    @Test
+    void decodesCharsetFromMetaTag() {
+        byte[] body = "<html><head><meta charset=\"windows-1251\"><title>Велосипеды</title></head></html>"
+                .getBytes(Charset.forName("windows-1251"));
+        PageData pageData = new PageData();
+        HtmlExtractor.extract(body, null, BASE_URI, pageData);
+        assertEquals("Велосипеды", pageData.getTitle());
+    }
+
+    @Test
+    void pageWithoutTitle() {
+        PageData pageData = new PageData();
+        HtmlExtractor.extract("<p>Текст</p>", BASE_URI, pageData);
+        assertEquals("", pageData.getTitle());
+        assertEquals("Текст", pageData.getText());
+        assertTrue(pageData.getLinks().isEmpty());
+    }
+
+    private static void assertMatchesJsoup(String name) throws IOException {
+        byte[] body = read(name);
+        Document document = Jsoup.parse(new ByteArrayInputStream(body), "UTF-8", BASE_URI);
+        List<String> links = new ArrayList<>();
+        for(Element element : document.select("a[href]")) {
+            String link = element.attr("abs:href");
+            if(!link.isEmpty()) {
+                links.add(link);
+            }
+        }
+
+        PageData pageData = new PageData();
+        HtmlExtractor.extract(body, "UTF-8", BASE_URI, pageData);
+        assertEquals(document.title(), pageData.getTitle(), name + ": title");
+        assertEquals(document.text(), pageData.getText(), name + ": text");
+        assertEquals(links, pageData.getLinks(), name + ": links");
+    }
+
+    private static byte[] read(String name) throws IOException {
+        try(InputStream stream = HtmlExtractorTest.class.getResourceAsStream("/html/" + name)) {
+            assertNotNull(stream, name);
+            return stream.readAllBytes();
+        }
+    }
+}
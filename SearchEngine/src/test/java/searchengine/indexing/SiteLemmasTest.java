@@ -0,0 +1,90 @@
+package searchengine.indexing;
+
+import org.junit.jupiter.api.Test;
+import searchengine.model.*;
+import searchengine.repositories.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SiteLemmasTest {
+    @Test
+    void concurrentCountsDrainAsExactDeltas() throws Exception {
+        SiteLemmas siteLemmas = new SiteLemmas(site());
+        List<String> lemmas = List.of("велосипед", "рама", "колесо");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for(int thread = 0; thread < 8; thread++) {
+                futures.add(executor.submit(() -> {
+                    for(int page = 0; page < 1000; page++) {
+                        siteLemmas.count(page % 2 == 0 ? lemmas : lemmas.subList(0, 1));
+                    }
+                }));
+            }
+            for(Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        List<LemmaDelta> deltas = new ArrayList<>();
+        siteLemmas.drain(lemmas, new CountingIdAllocator(100), deltas);
+        assertEquals(Map.of("велосипед", 8000L, "рама", 4000L, "колесо", 4000L), byLemma(deltas));
+
+        deltas.clear();
+        siteLemmas.uncount(List.of("рама"));
+        siteLemmas.drain(lemmas, new CountingIdAllocator(200), deltas);
+        assertEquals(Map.of("велосипед", 0L, "рама", -1L, "колесо", 0L), byLemma(deltas));
+    }
+
+    @Test
+    void idsAreAssignedOnceAndSeededIdsAreKept() {
+        SiteLemmas siteLemmas = new SiteLemmas(site());
+        siteLemmas.seed(7, "рама");
+        siteLemmas.count(List.of("рама", "колесо"));
+        CountingIdAllocator idAllocator = new CountingIdAllocator(100);
+
+        List<LemmaDelta> deltas = new ArrayList<>();
+        Map<String, LemmaEntity> entities = siteLemmas.drain(List.of("рама", "колесо"), idAllocator, deltas);
+        assertEquals(7, (int) entities.get("рама").getId());
+        assertEquals(100, (int) entities.get("колесо").getId());
+
+        siteLemmas.count(List.of("колесо"));
+        entities = siteLemmas.drain(List.of("колесо"), idAllocator, new ArrayList<>());
+        assertEquals(100, (int) entities.get("колесо").getId());
+        assertEquals(1, idAllocator.allocated);
+        deltas.forEach(delta -> assertEquals(1, delta.siteId()));
+    }
+
+    private static Map<String, Long> byLemma(List<LemmaDelta> deltas) {
+        Map<String, Long> byLemma = new HashMap<>();
+        deltas.forEach(delta -> byLemma.put(delta.lemma(), delta.delta()));
+        return byLemma;
+    }
+
+    private static SiteEntity site() {
+        SiteEntity site = new SiteEntity();
+        site.setId(1);
+        return site;
+    }
+
+    private static class CountingIdAllocator extends IdAllocator {
+        private int next;
+        private int allocated;
+
+        private CountingIdAllocator(int first) {
+            super(null, null, null);
+            next = first;
+        }
+
+        @Override
+        public synchronized int allocate(String sequence, int count) {
+            allocated += count;
+            next += count;
+            return next - count;
+        }
+    }
+}
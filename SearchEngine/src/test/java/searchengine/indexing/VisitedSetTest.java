@@ -0,0 +1,74 @@
+package searchengine.indexing;
+
+import org.junit.jupiter.api.Test;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VisitedSetTest {
+    @Test
+    void addsEveryPathOnce() {
+        VisitedSet visitedSet = new VisitedSet();
+        assertTrue(visitedSet.add("/catalog/"));
+        assertFalse(visitedSet.add("/catalog/"));
+        assertTrue(visitedSet.add(new StringBuilder("/catalog/item/")));
+        assertTrue(visitedSet.contains("/catalog/item/"));
+        assertFalse(visitedSet.contains("/catalog/other/"));
+        assertEquals(2, visitedSet.size());
+    }
+
+    @Test
+    void keepsAllPathsAcrossResizes() {
+        VisitedSet visitedSet = new VisitedSet(16);
+        long initialBytes = visitedSet.sizeInBytes();
+        for(int i = 0; i < 100_000; i++) {
+            assertTrue(visitedSet.add("/page/" + i + "/"));
+        }
+        assertTrue(visitedSet.sizeInBytes() > initialBytes);
+        assertEquals(100_000, visitedSet.size());
+        for(int i = 0; i < 100_000; i++) {
+            assertTrue(visitedSet.contains("/page/" + i + "/"), "/page/" + i + "/");
+        }
+    }
+
+    @Test
+    void concurrentAddsAcceptEveryPathExactlyOnce() throws Exception {
+        int threads = 8;
+        int paths = 50_000;
+        VisitedSet visitedSet = new VisitedSet(16);
+        AtomicInteger[] accepted = new AtomicInteger[paths];
+        Arrays.setAll(accepted, i -> new AtomicInteger());
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for(int t = 0; t < threads; t++) {
+                int offset = t * paths / threads;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for(int i = 0; i < paths; i++) {
+                        int path = (offset + i) % paths;
+                        if(visitedSet.add("/page/" + path + "/")) {
+                            accepted[path].incrementAndGet();
+                        }
+                        assertTrue(visitedSet.contains("/page/" + path + "/"));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for(Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(paths, visitedSet.size());
+        for(int i = 0; i < paths; i++) {
+            assertEquals(1, accepted[i].get(), "/page/" + i + "/");
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package searchengine.lemma;
+
+import org.junit.jupiter.api.Test;
+import java.util.*;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WordFormCacheTest {
+    @Test
+    void loadsEveryWordOnceWhileItIsCached() {
+        List<String> loaded = new ArrayList<>();
+        WordFormCache cache = new WordFormCache(100);
+        Function<String, WordForm> loader = word -> {
+            loaded.add(word);
+            return new WordForm(word + "-lemma", false, true);
+        };
+
+        WordForm first = cache.get("рамы", loader);
+        assertSame(first, cache.get("рамы", loader));
+        assertEquals("рамы-lemma", first.normalForm());
+        assertEquals(List.of("рамы"), loaded);
+    }
+
+    @Test
+    void keepsRecentWordsAcrossARotation() {
+        List<String> loaded = new ArrayList<>();
+        WordFormCache cache = new WordFormCache(4);
+        Function<String, WordForm> loader = word -> {
+            loaded.add(word);
+            return new WordForm(word, false, true);
+        };
+
+        cache.get("a", loader);
+        cache.get("b", loader);
+        cache.get("c", loader);
+        cache.get("a", loader);
+        assertEquals(List.of("a", "b", "c"), loaded);
+
+        for(int i = 0; i < 10; i++) {
+            cache.get("word" + i, loader);
+        }
+        loaded.clear();
+        cache.get("a", loader);
+        assertEquals(List.of("a"), loaded);
+    }
+}
@@ -0,0 +1,50 @@
+package searchengine.lemma;
+
+import org.junit.jupiter.api.Test;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WordTokenizerTest {
+    @Test
+    void reportsWordsWithTheirPositionsInTheText() {
+        String text = "Ёжик, Bike-2024 и  ВЕЛОСИПЕД!";
+        List<String> tokens = tokens(text);
+        assertEquals(List.of("ежик:true:0:4", "bike:false:6:10", "и:true:16:17", "велосипед:true:19:28"), tokens);
+        assertEquals("Ёжик", text.substring(0, 4));
+        assertEquals("ВЕЛОСИПЕД", text.substring(19, 28));
+    }
+
+    @Test
+    void foldsYoIntoYe() {
+        assertEquals(List.of("елка:true:0:4", "еще:true:5:8"), tokens("Ёлка ещё"));
+        assertEquals(tokens("ещё"), tokens("еще"));
+    }
+
+    @Test
+    void splitsWhereTheAlphabetChanges() {
+        assertEquals(List.of("web:false:0:3", "сайт:true:3:7"), tokens("webсайт"));
+    }
+
+    @Test
+    void tokenEndMatchesTokenize() {
+        String text = "Ёжик, Bike-2024 и  ВЕЛОСИПЕДwheel";
+        WordTokenizer.tokenize(text, (word, cyrillic, start, end) ->
+                assertEquals(end, WordTokenizer.tokenEnd(text, start), word));
+        assertEquals(4, WordTokenizer.tokenEnd(text, 4));
+        assertEquals(text.length(), WordTokenizer.tokenEnd(text, text.length()));
+    }
+
+    @Test
+    void emptyTextHasNoWords() {
+        assertTrue(tokens("").isEmpty());
+        assertTrue(tokens(" 123, — !").isEmpty());
+    }
+
+    private static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        WordTokenizer.tokenize(text, (word, cyrillic, start, end) ->
+                tokens.add(word + ":" + cyrillic + ":" + start + ":" + end));
+        return tokens;
+    }
+}
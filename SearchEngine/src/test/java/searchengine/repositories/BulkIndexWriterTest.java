@@ -0,0 +1,76 @@
+package searchengine.repositories;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.*;
+import searchengine.config.Config;
+import searchengine.model.*;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Statements of {@link BulkIndexWriter} are run against a recording {@link PreparedStatement}, so the
+ * bound parameters can be checked without a database.
+ */
+class BulkIndexWriterTest {
+    @Test
+    void missingTokenCountIsWrittenAsZero() throws SQLException {
+        RecordingJdbcTemplate jdbcTemplate = new RecordingJdbcTemplate();
+        Config config = new Config();
+        config.setBulkBatchSize(100);
+        BulkIndexWriter writer = new BulkIndexWriter(jdbcTemplate, null, config);
+        PageEntity counted = page(1, 250);
+        PageEntity uncounted = page(2, null);
+
+        writer.insertPages(List.of(counted, uncounted));
+        assertEquals(250, jdbcTemplate.rows.get(0).get(7));
+        assertEquals(0, jdbcTemplate.rows.get(1).get(7));
+
+        jdbcTemplate.rows.clear();
+        writer.updatePages(List.of(counted, uncounted));
+        assertEquals(250, jdbcTemplate.rows.get(0).get(4));
+        assertEquals(0, jdbcTemplate.rows.get(1).get(4));
+    }
+
+    private static PageEntity page(int id, Integer tokenCount) {
+        SiteEntity site = new SiteEntity();
+        site.setId(1);
+        PageEntity page = new PageEntity();
+        page.setId(id);
+        page.setSite(site);
+        page.setPath("/page/" + id);
+        page.setCode(200);
+        page.setTitle("Страница");
+        page.setContent("Текст");
+        page.setTokenCount(tokenCount);
+        return page;
+    }
+
+    private static class RecordingJdbcTemplate extends JdbcTemplate {
+        private final List<Map<Integer, Object>> rows = new ArrayList<>();
+
+        @Override
+        public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                       ParameterizedPreparedStatementSetter<T> setter) {
+            for(T argument : batchArgs) {
+                Map<Integer, Object> row = new HashMap<>();
+                PreparedStatement statement = (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                        new Class<?>[] {PreparedStatement.class}, (proxy, method, arguments) -> {
+                            if(method.getName().startsWith("set") && arguments != null && arguments.length == 2) {
+                                row.put((Integer) arguments[0], arguments[1]);
+                            }
+                            return null;
+                        });
+                try {
+                    setter.setValues(statement, argument);
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+                rows.add(row);
+            }
+            return new int[][] {new int[batchArgs.size()]};
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package searchengine.searching;
+
+import org.junit.jupiter.api.Test;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CandidateSetTest {
+    @Test
+    void topPagesEqualASortedSlice() {
+        Random random = new Random(17);
+        List<FoundPage> pages = new ArrayList<>();
+        for(int pageId = 1; pageId <= 500; pageId++) {
+            pages.add(new FoundPage(pageId, null, random.nextInt(50) / 10.0));
+        }
+        List<FoundPage> sorted = new ArrayList<>(pages);
+        sorted.sort(CandidateSet.RANKING);
+        Collections.shuffle(pages, random);
+        CandidateSet candidateSet = new CandidateSet(pages, Set.of(), pages.size(), true, 1000, List.of());
+
+        for(int[] page : new int[][] {{0, 10}, {10, 10}, {95, 20}, {490, 20}}) {
+            int to = Math.min(page[0] + page[1], sorted.size());
+            assertEquals(ids(sorted.subList(page[0], to)), ids(candidateSet.top(page[0], page[1])),
+                    "offset " + page[0]);
+        }
+        assertTrue(candidateSet.top(500, 10).isEmpty());
+        assertTrue(candidateSet.top(0, 0).isEmpty());
+    }
+
+    @Test
+    void coversOnlyWhatWasKept() {
+        List<FoundPage> pages = List.of(new FoundPage(1, null, 2.0), new FoundPage(2, null, 1.0));
+        CandidateSet complete = new CandidateSet(pages, Set.of(), 2, true, 100, List.of());
+        assertTrue(complete.covers(500));
+
+        CandidateSet truncated = new CandidateSet(pages, Set.of(), 300, true, 100, List.of());
+        assertTrue(truncated.covers(100));
+        assertFalse(truncated.covers(101));
+
+        CandidateSet estimated = new CandidateSet(pages, Set.of(), 2, false, 100, List.of());
+        assertFalse(estimated.covers(101));
+        assertEquals(2.0, estimated.getMaxRelevance());
+    }
+
+    private static List<Integer> ids(List<FoundPage> pages) {
+        return pages.stream().map(FoundPage::getPageId).toList();
+    }
+}
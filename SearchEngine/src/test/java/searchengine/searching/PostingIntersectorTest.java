@@ -0,0 +1,97 @@
+package searchengine.searching;
+
+import org.junit.jupiter.api.Test;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostingIntersectorTest {
+    private static final long SEED = 7;
+
+    @Test
+    void matchesSetIntersection() {
+        Random random = new Random(SEED);
+        int[][] rare = PostingListTest.postings(random, 40, 2000);
+        int[][] common = PostingListTest.postings(random, 20_000, 4);
+        int[][] medium = PostingListTest.postings(random, 3000, 25);
+        List<PostingList> postingLists = List.of(list(common), list(rare), list(medium));
+
+        Set<Integer> expected = docs(rare);
+        expected.retainAll(docs(common));
+        expected.retainAll(docs(medium));
+
+        List<Integer> matches = new ArrayList<>();
+        new PostingIntersector(postingLists).forEachMatch((doc, cursors) -> {
+            for(PostingList.Cursor cursor : cursors) {
+                assertEquals(doc, cursor.doc());
+            }
+            matches.add(doc);
+        });
+        assertEquals(new ArrayList<>(new TreeSet<>(expected)), matches);
+    }
+
+    @Test
+    void cursorsAreOrderedByListSizeAndCarryRanks() {
+        PostingList large = PostingList.of(new int[] {1, 2, 3, 4, 5}, new int[] {10, 20, 30, 40, 50}, 5);
+        PostingList small = PostingList.of(new int[] {2, 5}, new int[] {7, 8}, 2);
+        PostingIntersector intersector = new PostingIntersector(List.of(large, small));
+        assertSame(small, intersector.getCursors()[0].postingList());
+
+        List<String> matches = new ArrayList<>();
+        intersector.forEachMatch((doc, cursors) ->
+                matches.add(doc + ":" + cursors[0].rank() + ":" + cursors[1].rank()));
+        assertEquals(List.of("2:7:20", "5:8:50"), matches);
+    }
+
+    @Test
+    void singleListMatchesEveryPage() {
+        int[][] postings = PostingListTest.postings(new Random(SEED), 500, 10);
+        List<Integer> matches = new ArrayList<>();
+        new PostingIntersector(List.of(list(postings))).forEachMatch((doc, cursors) -> matches.add(doc));
+        assertEquals(new ArrayList<>(new TreeSet<>(docs(postings))), matches);
+    }
+
+    @Test
+    void disjointOrEmptyListsMatchNothing() {
+        PostingList odd = PostingList.of(new int[] {1, 3, 5}, new int[] {1, 1, 1}, 3);
+        PostingList even = PostingList.of(new int[] {2, 4, 6}, new int[] {1, 1, 1}, 3);
+        PostingList empty = PostingList.of(new int[0], new int[0], 0);
+        List<Integer> matches = new ArrayList<>();
+        new PostingIntersector(List.of(odd, even)).forEachMatch((doc, cursors) -> matches.add(doc));
+        new PostingIntersector(List.of(odd, empty)).forEachMatch((doc, cursors) -> matches.add(doc));
+        new PostingIntersector(List.of()).forEachMatch((doc, cursors) -> matches.add(doc));
+        assertTrue(matches.isEmpty());
+    }
+
+    @Test
+    void prunedBlocksAreSkippedInAllLists() {
+        Random random = new Random(SEED);
+        int[][] rare = PostingListTest.postings(random, 2000, 8);
+        int[][] common = PostingListTest.postings(random, 8000, 2);
+        int[] boundaries = {rare[0][PostingList.SKIP_INTERVAL - 1], rare[0][3 * PostingList.SKIP_INTERVAL - 1]};
+
+        List<Integer> matches = new ArrayList<>();
+        PostingIntersector intersector = new PostingIntersector(List.of(list(common), list(rare)));
+        intersector.forEachMatch((doc, cursors) -> matches.add(doc), cursors -> {
+            int doc = cursors[0].doc();
+            return doc > boundaries[0] && doc <= boundaries[1];
+        });
+
+        Set<Integer> expected = docs(rare);
+        expected.retainAll(docs(common));
+        expected.removeIf(doc -> doc > boundaries[0] && doc <= boundaries[1]);
+        assertEquals(new ArrayList<>(new TreeSet<>(expected)), matches);
+        assertEquals(2 * PostingList.SKIP_INTERVAL, intersector.getSkipped());
+        assertEquals(rare[0].length, intersector.getExamined() + intersector.getSkipped());
+    }
+
+    private static PostingList list(int[][] postings) {
+        return PostingList.of(postings[0], postings[1], postings[0].length);
+    }
+
+    private static Set<Integer> docs(int[][] postings) {
+        Set<Integer> docs = new HashSet<>();
+        Arrays.stream(postings[0]).forEach(docs::add);
+        return docs;
+    }
+}
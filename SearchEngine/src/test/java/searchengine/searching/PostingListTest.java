@@ -0,0 +1,160 @@
+package searchengine.searching;
+
+import org.junit.jupiter.api.Test;
+import java.nio.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostingListTest {
+    private static final long SEED = 42;
+
+    @Test
+    void decodesWhatWasEncoded() {
+        int[][] postings = postings(new Random(SEED), 1000, 1 << 20);
+        PostingList postingList = PostingList.of(postings[0], postings[1], postings[0].length);
+
+        assertEquals(1000, postingList.size());
+        assertEquals(postings[0][999], postingList.lastDoc());
+        assertEquals(Arrays.stream(postings[1]).max().orElseThrow(), postingList.maxRank());
+        assertDecodes(postings, postingList);
+    }
+
+    @Test
+    void advanceMatchesLinearScan() {
+        int[][] postings = postings(new Random(SEED), 5000, 64);
+        PostingList postingList = PostingList.of(postings[0], postings[1], postings[0].length);
+        int lastDoc = postings[0][postings[0].length - 1];
+
+        Random random = new Random(SEED + 1);
+        for(int i = 0; i < 200; i++) {
+            int target = random.nextInt(lastDoc + 10);
+            PostingList.Cursor cursor = postingList.cursor();
+            assertEquals(firstAtLeast(postings[0], target), cursor.advance(target), "target " + target);
+            if(cursor.doc() != PostingList.NO_MORE_DOCS) {
+                assertEquals(postings[1][Arrays.binarySearch(postings[0], cursor.doc())], cursor.rank());
+            }
+        }
+
+        PostingList.Cursor cursor = postingList.cursor();
+        for(int target = 0; target <= lastDoc; target += 1 + random.nextInt(500)) {
+            assertEquals(firstAtLeast(postings[0], target), cursor.advance(target), "target " + target);
+        }
+        assertEquals(PostingList.NO_MORE_DOCS, cursor.advance(lastDoc + 1));
+    }
+
+    @Test
+    void blockMaxRankBoundsEveryRankOfItsBlock() {
+        int[][] postings = postings(new Random(SEED), 1000, 16);
+        PostingList postingList = PostingList.of(postings[0], postings[1], postings[0].length);
+        PostingList.Cursor cursor = postingList.cursor();
+        for(int i = 0; cursor.nextDoc() != PostingList.NO_MORE_DOCS; i++) {
+            int blockStart = i / PostingList.SKIP_INTERVAL * PostingList.SKIP_INTERVAL;
+            int blockEnd = Math.min(postings[1].length, blockStart + PostingList.SKIP_INTERVAL);
+            int blockMax = Arrays.stream(postings[1], blockStart, blockEnd).max().orElseThrow();
+            assertEquals(blockMax, cursor.blockMaxRank(), "posting " + i);
+        }
+    }
+
+    @Test
+    void shallowAdvanceFindsTheBlockOfATargetWithoutMovingTheCursor() {
+        int[][] postings = postings(new Random(SEED), 1000, 16);
+        PostingList postingList = PostingList.of(postings[0], postings[1], postings[0].length);
+        PostingList.Cursor cursor = postingList.cursor();
+        int lastDoc = postings[0][postings[0].length - 1];
+        for(int target = 0; target <= lastDoc; target += 1 + new Random(target).nextInt(200)) {
+            int index = Arrays.binarySearch(postings[0], target);
+            index = index >= 0 ? index : -index - 1;
+            int blockStart = index / PostingList.SKIP_INTERVAL * PostingList.SKIP_INTERVAL;
+            int blockEnd = Math.min(postings[0].length, blockStart + PostingList.SKIP_INTERVAL);
+            assertEquals(postings[0][blockEnd - 1], cursor.shallowAdvance(target), "target " + target);
+            assertEquals(Arrays.stream(postings[1], blockStart, blockEnd).max().orElseThrow(),
+                    cursor.shallowMaxRank(), "target " + target);
+            assertEquals(0, cursor.ordinal());
+        }
+    }
+
+    @Test
+    void appendInOrderEqualsBuildingAtOnce() {
+        int[][] postings = postings(new Random(SEED), 700, 1000);
+        PostingList appended = PostingList.of(new int[0], new int[0], 0);
+        for(int from = 0; from < 700; from += 97) {
+            int count = Math.min(97, 700 - from);
+            appended = appended.append(Arrays.copyOfRange(postings[0], from, from + count),
+                    Arrays.copyOfRange(postings[1], from, from + count), count);
+        }
+        assertDecodes(postings, appended);
+        assertEquals(postings[0][699], appended.lastDoc());
+
+        PostingList.Cursor expected = PostingList.of(postings[0], postings[1], 700).cursor();
+        PostingList.Cursor actual = appended.cursor();
+        while(expected.nextDoc() != PostingList.NO_MORE_DOCS) {
+            actual.nextDoc();
+            assertEquals(expected.blockMaxRank(), actual.blockMaxRank());
+        }
+    }
+
+    @Test
+    void appendOutOfOrderMergesAndReplacesRanks() {
+        PostingList postingList = PostingList.of(new int[] {2, 5, 9}, new int[] {1, 1, 1}, 3)
+                .append(new int[] {1, 5, 7}, new int[] {3, 4, 5}, 3);
+        assertDecodes(new int[][] {{1, 2, 5, 7, 9}, {3, 1, 4, 5, 1}}, postingList);
+    }
+
+    @Test
+    void removeDropsOnlyThatPage() {
+        PostingList postingList = PostingList.of(new int[] {3, 4, 8}, new int[] {1, 2, 3}, 3);
+        assertDecodes(new int[][] {{3, 8}, {1, 3}}, postingList.remove(4));
+        assertSame(postingList, postingList.remove(5));
+    }
+
+    @Test
+    void readsWhatWasWrittenToASegmentBuffer() {
+        int[][] postings = postings(new Random(SEED), 3000, 1 << 15);
+        PostingList postingList = PostingList.of(postings[0], postings[1], postings[0].length);
+        int offset = 16;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(offset + postingList.serializedSize())
+                .order(ByteOrder.LITTLE_ENDIAN);
+        postingList.writeTo(buffer, offset);
+
+        PostingList read = PostingList.read(buffer, offset);
+        assertEquals(postingList.size(), read.size());
+        assertEquals(postingList.lastDoc(), read.lastDoc());
+        assertEquals(postingList.maxRank(), read.maxRank());
+        assertDecodes(postings, read);
+        int target = postings[0][2500];
+        assertEquals(target, read.cursor().advance(target));
+    }
+
+    /**
+     * Sorted distinct page ids with gaps below {@code maxGap} and ranks from 1 to 1000.
+     */
+    static int[][] postings(Random random, int count, int maxGap) {
+        int[] docs = new int[count];
+        int[] ranks = new int[count];
+        int doc = 0;
+        for(int i = 0; i < count; i++) {
+            doc += 1 + random.nextInt(maxGap);
+            docs[i] = doc;
+            ranks[i] = 1 + random.nextInt(1000);
+        }
+        return new int[][] {docs, ranks};
+    }
+
+    private static void assertDecodes(int[][] expected, PostingList postingList) {
+        int[] docs = new int[postingList.size()];
+        int[] ranks = new int[postingList.size()];
+        postingList.decode(docs, ranks);
+        assertArrayEquals(expected[0], docs);
+        assertArrayEquals(expected[1], ranks);
+    }
+
+    private static int firstAtLeast(int[] docs, int target) {
+        for(int doc : docs) {
+            if(doc >= target) {
+                return doc;
+            }
+        }
+        return PostingList.NO_MORE_DOCS;
+    }
+}
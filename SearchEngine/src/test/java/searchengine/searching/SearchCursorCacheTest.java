@@ -0,0 +1,57 @@
+package searchengine.searching;
+
+import org.junit.jupiter.api.Test;
+import searchengine.config.Config;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchCursorCacheTest {
+    @Test
+    void cursorEncodesItsSetAndOffset() {
+        SearchCursor cursor = new SearchCursor("3f2a", 40);
+        assertEquals(cursor, SearchCursor.decode(cursor.encode()));
+        assertNull(SearchCursor.decode(null));
+        assertNull(SearchCursor.decode(""));
+        assertNull(SearchCursor.decode("не курсор"));
+        assertNull(SearchCursor.decode(Base64.getUrlEncoder().encodeToString("3f2a:сорок".getBytes())));
+    }
+
+    @Test
+    void candidateSetIsOnlyReturnedForItsQueryAndSite() {
+        SearchCursorCache cache = cache(10);
+        CandidateSet candidateSet = candidateSet();
+        String id = cache.put("велосипед", "https://example.org", candidateSet);
+
+        assertSame(candidateSet, cache.get(id, "велосипед", "https://example.org"));
+        assertNull(cache.get(id, "рама", "https://example.org"));
+        assertNull(cache.get(id, "велосипед", null));
+        assertNull(cache.get("другой", "велосипед", "https://example.org"));
+
+        String allSites = cache.put("велосипед", null, candidateSet);
+        assertSame(candidateSet, cache.get(allSites, "велосипед", null));
+        assertNull(cache.get(allSites, "велосипед", "https://example.org"));
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedSet() {
+        SearchCursorCache cache = cache(2);
+        String first = cache.put("a", null, candidateSet());
+        String second = cache.put("b", null, candidateSet());
+        assertNotNull(cache.get(first, "a", null));
+        cache.put("c", null, candidateSet());
+
+        assertNotNull(cache.get(first, "a", null));
+        assertNull(cache.get(second, "b", null));
+    }
+
+    private static SearchCursorCache cache(int size) {
+        Config config = new Config();
+        config.setCursorCacheSize(size);
+        return new SearchCursorCache(config);
+    }
+
+    private static CandidateSet candidateSet() {
+        return new CandidateSet(new ArrayList<>(), Set.of(), 0, true, 100, List.of());
+    }
+}
@@ -0,0 +1,121 @@
+package searchengine.searching;
+
+import org.junit.jupiter.api.Test;
+import searchengine.config.Config;
+import searchengine.lemma.Lemmatizer;
+import searchengine.model.SiteEntity;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Block-max pruning must not change the result: the pages kept by {@link SearchingTask} are the
+ * best pages of an exhaustive BM25 scoring of the whole intersection, and a count extrapolated
+ * after skipping blocks stays close to the real one.
+ */
+class SearchingTaskTest {
+    private static final int SITE_ID = 1;
+    private static final int PAGES = 20_000;
+    private static final List<String> LEMMAS = List.of("велосипед", "рама", "колесо");
+
+    @Test
+    void blockMaxTopKEqualsExhaustiveScoring() {
+        InvertedIndex invertedIndex = index(new Random(3));
+        for(int limit : new int[] {1, 10, 100}) {
+            SiteMatches matches = search(invertedIndex, String.join(" ", LEMMAS), limit);
+            List<FoundPage> expected = exhaustive(invertedIndex, LEMMAS);
+
+            if(limit == 1) {
+                assertFalse(matches.isExactCount());
+            }
+            if(matches.isExactCount()) {
+                assertEquals(expected.size(), matches.getCount());
+            } else {
+                assertEquals(expected.size(), matches.getCount(), expected.size() * 0.1);
+            }
+            List<FoundPage> found = new ArrayList<>(matches.getPages());
+            found.sort(CandidateSet.RANKING);
+            assertEquals(Math.min(limit, expected.size()), found.size());
+            for(int i = 0; i < found.size(); i++) {
+                assertEquals(expected.get(i).getPageId(), found.get(i).getPageId(), "rank " + i + " of " + limit);
+                assertEquals(expected.get(i).getRelevance(), found.get(i).getRelevance(), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void countIsExactWhenEveryMatchIsKept() {
+        InvertedIndex invertedIndex = index(new Random(5));
+        SiteMatches matches = search(invertedIndex, String.join(" ", LEMMAS), PAGES);
+        assertTrue(matches.isExactCount());
+        assertEquals(exhaustive(invertedIndex, LEMMAS).size(), matches.getCount());
+        assertEquals(matches.getCount(), matches.getPages().size());
+    }
+
+    private static SiteMatches search(InvertedIndex invertedIndex, String query, int limit) {
+        SiteEntity site = new SiteEntity();
+        site.setId(SITE_ID);
+        site.setName("test");
+        SearchQuery searchQuery = SearchQuery.parse(query, new Lemmatizer());
+        return new SearchingTask(site, invertedIndex, searchQuery, (pageIds, lemmas) -> Map.of(), 1.0, limit)
+                .invoke();
+    }
+
+    private static List<FoundPage> exhaustive(InvertedIndex invertedIndex, List<String> lemmas) {
+        int pageCount = invertedIndex.getPageCount(SITE_ID);
+        double averageLength = invertedIndex.getAverageDocLength(SITE_ID);
+        List<PostingList> postingLists = lemmas.stream()
+                .map(lemma -> invertedIndex.getPostings(SITE_ID, lemma))
+                .toList();
+        List<Map<Integer, Integer>> ranks = postingLists.stream().map(SearchingTaskTest::ranks).toList();
+        Set<Integer> docs = new HashSet<>(ranks.get(0).keySet());
+        ranks.forEach(byDoc -> docs.retainAll(byDoc.keySet()));
+
+        List<FoundPage> pages = new ArrayList<>();
+        for(int doc : docs) {
+            double relevance = 0;
+            for(int i = 0; i < postingLists.size(); i++) {
+                Bm25 bm25 = new Bm25(pageCount, postingLists.get(i).size(), averageLength);
+                relevance += bm25.score(ranks.get(i).get(doc), invertedIndex.getDocLength(doc));
+            }
+            pages.add(new FoundPage(doc, null, relevance));
+        }
+        pages.sort(CandidateSet.RANKING);
+        return pages;
+    }
+
+    private static Map<Integer, Integer> ranks(PostingList postingList) {
+        Map<Integer, Integer> ranks = new HashMap<>();
+        PostingList.Cursor cursor = postingList.cursor();
+        while(cursor.nextDoc() != PostingList.NO_MORE_DOCS) {
+            ranks.put(cursor.doc(), cursor.rank());
+        }
+        return ranks;
+    }
+
+    /**
+     * Lemmas of falling frequency over {@link #PAGES} pages; ranks are skewed so that a few pages
+     * of every block stand out, which is where block-max skips the rest.
+     */
+    private static InvertedIndex index(Random random) {
+        InvertedIndex invertedIndex = new InvertedIndex(new SegmentStore(new Config()));
+        double[] densities = {0.6, 0.3, 0.15};
+        for(int i = 0; i < LEMMAS.size(); i++) {
+            int[] docs = new int[PAGES];
+            int[] ranks = new int[PAGES];
+            int count = 0;
+            for(int doc = 1; doc <= PAGES; doc++) {
+                if(random.nextDouble() < densities[i]) {
+                    docs[count] = doc;
+                    ranks[count++] = random.nextInt(50) == 0 ? 20 + random.nextInt(30) : 1 + random.nextInt(3);
+                }
+            }
+            invertedIndex.appendPostings(SITE_ID, LEMMAS.get(i), docs, ranks, count);
+        }
+        for(int doc = 1; doc <= PAGES; doc++) {
+            invertedIndex.setDocLength(SITE_ID, doc, 50 + random.nextInt(2000));
+        }
+        invertedIndex.addPageCount(SITE_ID, PAGES);
+        return invertedIndex;
+    }
+}
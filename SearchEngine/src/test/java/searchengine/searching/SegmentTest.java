@@ -0,0 +1,127 @@
+package searchengine.searching;
+
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.file.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentTest {
+    @Test
+    void readsBackWhatWasWritten() throws IOException {
+        Random random = new Random(11);
+        Map<String, PostingList> postings = new HashMap<>();
+        for(String lemma : List.of("велосипед", "рама", "колесо", "bike", "ёж")) {
+            int[][] lists = PostingListTest.postings(random, 50 + random.nextInt(500), 30);
+            postings.put(lemma, PostingList.of(lists[0], lists[1], lists[0].length));
+        }
+        Map<Integer, Integer> lengths = new HashMap<>();
+        postings.values().forEach(postingList -> {
+            PostingList.Cursor cursor = postingList.cursor();
+            while(cursor.nextDoc() != PostingList.NO_MORE_DOCS) {
+                lengths.put(cursor.doc(), 100 + cursor.doc() % 900);
+            }
+        });
+        Set<String> lemmas = new HashSet<>(postings.keySet());
+        lemmas.add("удалённая");
+
+        Path directory = Files.createTempDirectory("segment");
+        Path path = directory.resolve("1.seg");
+        try {
+            Segment written = Segment.write(path, lemmas, postings::get,
+                    pageId -> lengths.getOrDefault(pageId, 0), lengths.size(), 123_456_789_012L);
+            assertSegment(postings, lengths, written);
+            assertSegment(postings, lengths, Segment.open(path));
+        } finally {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    @Test
+    void storesOnlyTheLengthsOfItsOwnPages() throws IOException {
+        int[][] first = {{10, 12, 14, 16}, {1, 2, 3, 4}};
+        int[][] second = {{11, 13, 15}, {5, 6, 7}};
+        Map<Integer, Integer> lengths = new HashMap<>();
+        for(int pageId = 10; pageId <= 16; pageId++) {
+            lengths.put(pageId, 100 + pageId);
+        }
+
+        Path directory = Files.createTempDirectory("segment");
+        Path firstPath = directory.resolve("1.seg");
+        Path secondPath = directory.resolve("2.seg");
+        try {
+            Segment firstSegment = Segment.write(firstPath, List.of("рама"),
+                    lemma -> PostingList.of(first[0], first[1], first[0].length),
+                    pageId -> lengths.getOrDefault(pageId, 0), first[0].length, 0);
+            lengths.put(13, 500);
+            Segment secondSegment = Segment.write(secondPath, List.of("колесо"),
+                    lemma -> PostingList.of(second[0], second[1], second[0].length),
+                    pageId -> lengths.getOrDefault(pageId, 0), second[0].length, 0);
+
+            IntBuffer norms = firstSegment.getNorms();
+            for(int i = 0; i < norms.limit(); i++) {
+                int pageId = firstSegment.getNormBase() + i;
+                assertEquals(pageId % 2 == 0 ? 100 + pageId : 0, norms.get(i), "page " + pageId);
+            }
+
+            DocLengths docLengths = new DocLengths();
+            docLengths.load(secondSegment.getNormBase(), secondSegment.getNorms());
+            docLengths.load(firstSegment.getNormBase(), firstSegment.getNorms());
+            for(int pageId = 10; pageId <= 16; pageId++) {
+                assertEquals((int) lengths.get(pageId), docLengths.get(pageId), "page " + pageId);
+            }
+        } finally {
+            Files.deleteIfExists(firstPath);
+            Files.deleteIfExists(secondPath);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        Path path = Files.createTempFile("segment", ".seg");
+        try {
+            Files.write(path, new byte[64]);
+            assertThrows(IOException.class, () -> Segment.open(path));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    private static void assertSegment(Map<String, PostingList> postings, Map<Integer, Integer> lengths,
+                                      Segment segment) {
+        assertEquals(lengths.size(), segment.getPageCount());
+        assertEquals(123_456_789_012L, segment.getTotalLength());
+        assertEquals(postings.size(), segment.getLemmaCount());
+
+        Set<String> lemmas = new HashSet<>();
+        segment.forEachLemma(lemmas::add);
+        assertEquals(postings.keySet(), lemmas);
+        assertNull(segment.getPostings("удалённая"));
+        assertNull(segment.getPostings("нет"));
+        postings.forEach((lemma, expected) -> {
+            PostingList actual = segment.getPostings(lemma);
+            assertNotNull(actual, lemma);
+            int[] expectedDocs = new int[expected.size()];
+            int[] expectedRanks = new int[expected.size()];
+            expected.decode(expectedDocs, expectedRanks);
+            int[] docs = new int[actual.size()];
+            int[] ranks = new int[actual.size()];
+            actual.decode(docs, ranks);
+            assertArrayEquals(expectedDocs, docs, lemma);
+            assertArrayEquals(expectedRanks, ranks, lemma);
+            assertEquals(expected.maxRank(), actual.maxRank(), lemma);
+        });
+
+        int normBase = segment.getNormBase();
+        IntBuffer norms = segment.getNorms();
+        assertEquals((int) Collections.min(lengths.keySet()), normBase);
+        assertEquals(Collections.max(lengths.keySet()) - normBase + 1, norms.limit());
+        for(int i = 0; i < norms.limit(); i++) {
+            assertEquals((int) lengths.getOrDefault(normBase + i, 0), norms.get(i), "page " + (normBase + i));
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package searchengine.services;
+
+import org.junit.jupiter.api.Test;
+import searchengine.cluster.ShardMap;
+import searchengine.config.*;
+import searchengine.dto.search.SearchResponse;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClusterSearchServiceTest {
+    @Test
+    void siteWithoutOwnerGivesAnEmptyResult() {
+        SitesList sites = new SitesList();
+        sites.setSites(List.of());
+        ClusterSettings settings = new ClusterSettings();
+        settings.setRouter(true);
+        ClusterSearchService searchService = new ClusterSearchService(new ShardMap(sites, settings), null);
+
+        SearchResponse response = searchService.search("велосипед", 0, 10, "https://example.org", null);
+        assertTrue(response.isResult());
+        assertEquals(0, (int) response.getCount());
+        assertTrue(response.getData().isEmpty());
+    }
+}
@@ -0,0 +1,266 @@
+package searchengine.services;
+
+import org.junit.jupiter.api.Test;
+import searchengine.cluster.ShardMap;
+import searchengine.config.*;
+import searchengine.indexing.*;
+import searchengine.model.*;
+import searchengine.repositories.*;
+import searchengine.searching.*;
+import java.lang.reflect.*;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Full runs against in-memory repositories and a scheduler that finishes every crawl at once,
+ * so the shadow swap, the discarding of a failed rebuild and the dropping of generations can be
+ * followed through the site rows.
+ */
+class IndexingServiceImplTest {
+    private static final String URL = "https://example.org";
+
+    private final Map<Integer, SiteEntity> siteRows = new ConcurrentHashMap<>();
+    private final List<Integer> droppedLemmaSites = new CopyOnWriteArrayList<>();
+    private final AtomicInteger nextSiteId = new AtomicInteger(100);
+
+    @Test
+    void shadowReplacesTheLiveGenerationAndTheOldOneIsDropped() throws Exception {
+        SiteEntity live = site(1, URL, true);
+        List<SiteEntity> crawled = new CopyOnWriteArrayList<>();
+        IndexingServiceImpl indexingService = service(List.of(URL), crawl -> {
+            crawled.add(copy(siteRows.get(crawl.getSite().getId())));
+            assertEquals(List.of(live.getId()), liveIds());
+            crawl.requestScheduled();
+            crawl.requestDone();
+        });
+
+        runFullIndexing(indexingService);
+        awaitRows(1);
+
+        SiteEntity shadow = crawled.get(0);
+        assertNotEquals(live.getId(), shadow.getId());
+        assertFalse(shadow.getLive());
+        assertEquals(Status.INDEXING, shadow.getStatus());
+        assertEquals(List.of(shadow.getId()), liveIds());
+        assertEquals(Status.INDEXED, siteRows.get(shadow.getId()).getStatus());
+        assertEquals(List.of(live.getId()), droppedLemmaSites);
+    }
+
+    @Test
+    void cancelledRebuildIsDroppedAndTheLiveGenerationKept() throws Exception {
+        SiteEntity live = site(1, URL, true);
+        IndexingServiceImpl[] indexingService = new IndexingServiceImpl[1];
+        indexingService[0] = service(List.of(URL), crawl -> {
+            crawl.requestScheduled();
+            indexingService[0].stopIndexing();
+            crawl.requestDone();
+        });
+
+        runFullIndexing(indexingService[0]);
+        awaitRows(1);
+
+        assertEquals(List.of(live.getId()), liveIds());
+        assertEquals("Индексация остановлена пользователем", siteRows.get(live.getId()).getLastError());
+        assertEquals(1, droppedLemmaSites.size());
+        assertNotEquals(live.getId(), droppedLemmaSites.get(0));
+    }
+
+    @Test
+    void sitesNoLongerConfiguredAreDropped() throws Exception {
+        SiteEntity configured = site(1, URL, true);
+        SiteEntity removed = site(2, "https://removed.example.org", true);
+        IndexingServiceImpl indexingService = service(List.of(URL), crawl -> {
+            assertFalse(siteRows.containsKey(removed.getId()) && siteRows.get(removed.getId()).getLive());
+            crawl.requestScheduled();
+            crawl.requestDone();
+        });
+
+        runFullIndexing(indexingService);
+        awaitRows(1);
+
+        assertFalse(siteRows.containsKey(configured.getId()));
+        assertFalse(siteRows.containsKey(removed.getId()));
+        assertEquals(URL, siteRows.values().iterator().next().getUrl());
+        assertEquals(Set.of(configured.getId(), removed.getId()), new HashSet<>(droppedLemmaSites));
+    }
+
+    @Test
+    void staleGenerationsAreDroppedAtStartup() throws Exception {
+        site(1, URL, true);
+        site(2, URL, false);
+        service(List.of(URL), crawl -> fail("nothing is crawled")).dropStaleGenerations();
+        awaitRows(1);
+        assertEquals(List.of(1), liveIds());
+        assertEquals(List.of(2), droppedLemmaSites);
+    }
+
+    @Test
+    void failedPersistKeepsTheLiveGeneration() throws Exception {
+        SiteEntity live = site(1, URL, true);
+        IndexingServiceImpl indexingService = service(List.of(URL), crawl -> {
+            crawl.requestScheduled();
+            crawl.persistFailed(new IllegalStateException("Deadlock found"));
+            crawl.savePages(List.of());
+            crawl.requestDone();
+        });
+
+        runFullIndexing(indexingService);
+        awaitRows(1);
+
+        SiteEntity kept = siteRows.get(live.getId());
+        assertTrue(kept.getLive());
+        assertEquals(Status.INDEXED, kept.getStatus());
+        assertEquals("Ошибка индексации: не удалось сохранить страницы сайта.", kept.getLastError());
+        assertEquals(List.of(live.getId()), liveIds());
+    }
+
+    @Test
+    void failedPersistOfAFirstCrawlMarksTheSiteFailed() throws Exception {
+        IndexingServiceImpl indexingService = service(List.of(URL), crawl -> {
+            crawl.requestScheduled();
+            crawl.persistFailed(new IllegalStateException("Deadlock found"));
+            crawl.requestDone();
+        });
+
+        runFullIndexing(indexingService);
+
+        SiteEntity site = siteRows.values().iterator().next();
+        assertEquals(Status.FAILED, site.getStatus());
+        assertEquals("Ошибка индексации: не удалось сохранить страницы сайта.", site.getLastError());
+    }
+
+    private void runFullIndexing(IndexingServiceImpl indexingService) throws InterruptedException {
+        assertEquals("true", indexingService.startIndexing(false).get("result"));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while(indexingService.isIndexing()) {
+            assertTrue(System.nanoTime() < deadline, "indexing did not finish");
+            Thread.sleep(10);
+        }
+    }
+
+    private void awaitRows(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while(siteRows.size() != count) {
+            assertTrue(System.nanoTime() < deadline, "site rows: " + siteRows.keySet());
+            Thread.sleep(10);
+        }
+    }
+
+    private List<Integer> liveIds() {
+        return siteRows.values().stream().filter(SiteEntity::getLive).map(SiteEntity::getId).sorted().toList();
+    }
+
+    private SiteEntity site(int id, String url, boolean live) {
+        SiteEntity site = new SiteEntity();
+        site.setId(id);
+        site.setUrl(url);
+        site.setName(url);
+        site.setLive(live);
+        site.setStatus(Status.INDEXED);
+        site.setStatusTime(Instant.now());
+        siteRows.put(id, site);
+        return site;
+    }
+
+    private IndexingServiceImpl service(List<String> urls, Consumer<SiteCrawl> crawler) {
+        SitesList sitesList = new SitesList();
+        sitesList.setSites(urls.stream().map(url -> {
+            Site site = new Site();
+            site.setUrl(url);
+            site.setName(url);
+            return site;
+        }).toList());
+        Config config = new Config();
+        config.setBulkBatchSize(100);
+        CancelFlag cancelFlag = new CancelFlag();
+        CrawlScheduler scheduler = new CrawlScheduler(config, null, cancelFlag, null, null) {
+            @Override
+            public void crawl(SiteCrawl siteCrawl) {
+                crawler.accept(siteCrawl);
+            }
+        };
+        return new IndexingServiceImpl(sitesList, config, siteRepository(), repository(PageRepository.class),
+                lemmaRepository(), repository(IndexRepository.class), null, null, new CopyOnWriteArrayList<>(),
+                cancelFlag, null, null, scheduler, new InvertedIndex(new SegmentStore(config)), null,
+                new ShardMap(sitesList, new ClusterSettings()));
+    }
+
+    private SiteRepository siteRepository() {
+        Map<String, Function<Object[], Object>> methods = new HashMap<>();
+        methods.put("findOneByUrlAndLiveTrue", arguments -> siteRows.values().stream()
+                .filter(site -> site.getLive() && site.getUrl().equals(arguments[0]))
+                .findFirst().map(this::copy).orElse(null));
+        methods.put("findAllByLiveTrue", arguments -> rows(true));
+        methods.put("findAllByLiveFalse", arguments -> rows(false));
+        methods.put("findById", arguments -> Optional.ofNullable(siteRows.get((Integer) arguments[0])).map(this::copy));
+        methods.put("save", arguments -> save((SiteEntity) arguments[0]));
+        methods.put("saveAndFlush", arguments -> save((SiteEntity) arguments[0]));
+        methods.put("saveAll", arguments -> {
+            List<SiteEntity> saved = new ArrayList<>();
+            ((Iterable<?>) arguments[0]).forEach(site -> saved.add(save((SiteEntity) site)));
+            return saved;
+        });
+        methods.put("deleteById", arguments -> siteRows.remove((Integer) arguments[0]));
+        return proxy(SiteRepository.class, methods);
+    }
+
+    private LemmaRepository lemmaRepository() {
+        return proxy(LemmaRepository.class, Map.of("deleteAllBySiteId", arguments -> {
+            droppedLemmaSites.add((Integer) arguments[0]);
+            return null;
+        }));
+    }
+
+    private List<SiteEntity> rows(boolean live) {
+        return siteRows.values().stream().filter(site -> site.getLive() == live).map(this::copy).toList();
+    }
+
+    private SiteEntity save(SiteEntity site) {
+        if(site.getId() == null) {
+            site.setId(nextSiteId.getAndIncrement());
+        }
+        siteRows.put(site.getId(), copy(site));
+        return site;
+    }
+
+    private SiteEntity copy(SiteEntity site) {
+        SiteEntity copy = new SiteEntity();
+        copy.setId(site.getId());
+        copy.setUrl(site.getUrl());
+        copy.setName(site.getName());
+        copy.setLive(site.getLive());
+        copy.setStatus(site.getStatus());
+        copy.setStatusTime(site.getStatusTime());
+        copy.setLastError(site.getLastError());
+        return copy;
+    }
+
+    private static <T> T repository(Class<T> type) {
+        return proxy(type, Map.of());
+    }
+
+    /**
+     * Repository whose methods in {@code methods} are answered by the given functions; other
+     * queries find nothing and other updates do nothing.
+     */
+    private static <T> T proxy(Class<T> type, Map<String, Function<Object[], Object>> methods) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type},
+                (proxy, method, arguments) -> {
+                    Function<Object[], Object> implementation = methods.get(method.getName());
+                    if(implementation != null) {
+                        return implementation.apply(arguments);
+                    }
+                    Class<?> returnType = method.getReturnType();
+                    return List.class.isAssignableFrom(returnType) ? List.of()
+                            : Optional.class.equals(returnType) ? Optional.empty()
+                            : returnType.equals(boolean.class) ? false
+                            : returnType.equals(int.class) ? 0
+                            : null;
+                }));
+    }
+}
@@ -0,0 +1,119 @@
+package searchengine.benchmarks;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Deterministic synthetic corpus built from the bundled Russian and English word lists.
+ * Words are drawn from a Zipf distribution, so a few lemmas are very common and most are rare,
+ * as on real sites. The same seed always yields the same pages, which keeps results
+ * comparable across commits.
+ */
+public final class Corpus {
+    public static final long SEED = 20240301L;
+
+    private static final double ZIPF_EXPONENT = 1.07;
+    private static final double RUSSIAN_SHARE = 0.8;
+    private static final int SENTENCE_LENGTH = 12;
+
+    private final List<String> pages;
+    private final long seed;
+
+    private Corpus(List<String> pages, long seed) {
+        this.pages = pages;
+        this.seed = seed;
+    }
+
+    public static Corpus generate(int pageCount, int wordsPerPage, long seed) {
+        Vocabulary russian = new Vocabulary(readWords("/corpus/ru.txt"));
+        Vocabulary english = new Vocabulary(readWords("/corpus/en.txt"));
+        Random random = new Random(seed);
+        List<String> pages = new ArrayList<>(pageCount);
+        for(int i = 0; i < pageCount; i++) {
+            StringBuilder page = new StringBuilder();
+            for(int w = 0; w < wordsPerPage; w++) {
+                Vocabulary vocabulary = random.nextDouble() < RUSSIAN_SHARE ? russian : english;
+                String word = vocabulary.sample(random);
+                boolean sentenceStart = w % SENTENCE_LENGTH == 0;
+                if(w > 0) {
+                    page.append(sentenceStart ? ". " : " ");
+                }
+                page.append(sentenceStart ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+            }
+            pages.add(page.append('.').toString());
+        }
+        return new Corpus(pages, seed);
+    }
+
+    public List<String> getPages() {
+        return pages;
+    }
+
+    /**
+     * Two-word queries made of words taken from random pages, so every query has matches.
+     */
+    public List<String> queries(int count) {
+        Random random = new Random(seed + 1);
+        List<String> queries = new ArrayList<>(count);
+        for(int i = 0; i < count; i++) {
+            String[] words = words(pages.get(random.nextInt(pages.size())));
+            queries.add(words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)]);
+        }
+        return queries;
+    }
+
+    /**
+     * Quoted two-word phrases copied from random pages.
+     */
+    public List<String> phrases(int count) {
+        Random random = new Random(seed + 2);
+        List<String> phrases = new ArrayList<>(count);
+        for(int i = 0; i < count; i++) {
+            String[] words = words(pages.get(random.nextInt(pages.size())));
+            int start = random.nextInt(words.length - 1);
+            phrases.add("\"" + words[start] + " " + words[start + 1] + "\"");
+        }
+        return phrases;
+    }
+
+    private static String[] words(String page) {
+        return page.replace(".", "").split(" ");
+    }
+
+    private static List<String> readWords(String resource) {
+        InputStream stream = Corpus.class.getResourceAsStream(resource);
+        if(stream == null) {
+            throw new IllegalStateException("Missing corpus resource " + resource);
+        }
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            return reader.lines().map(String::trim).filter(line -> !line.isEmpty()).toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static class Vocabulary {
+        private final List<String> words;
+        private final double[] cumulative;
+
+        private Vocabulary(List<String> words) {
+            this.words = words;
+            this.cumulative = new double[words.size()];
+            double total = 0;
+            for(int rank = 0; rank < words.size(); rank++) {
+                total += 1 / Math.pow(rank + 1, ZIPF_EXPONENT);
+                cumulative[rank] = total;
+            }
+            for(int rank = 0; rank < cumulative.length; rank++) {
+                cumulative[rank] /= total;
+            }
+        }
+
+        private String sample(Random random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            index = index < 0 ? -index - 1 : index;
+            return words.get(Math.min(index, words.size() - 1));
+        }
+    }
+}
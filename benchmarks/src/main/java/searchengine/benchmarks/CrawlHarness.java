@@ -0,0 +1,129 @@
+package searchengine.benchmarks;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import searchengine.Application;
+import searchengine.model.*;
+import searchengine.repositories.*;
+import searchengine.services.IndexingServiceImpl;
+import java.lang.management.*;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * End-to-end crawl benchmark: starts a {@link StandInSite}, boots the application with that site
+ * as the only configured site and runs a full indexing, then reports throughput.
+ * <p>
+ * Harness options are {@code --pages}, {@code --fan-out}, {@code --page-words}, {@code --latency} (ms),
+ * {@code --error-rate} and {@code --timeout} (s). All other arguments go to Spring, so settings such as
+ * {@code --indexing-settings.threshold=500} or {@code --spring.datasource.url=...} can be tuned per run.
+ * The datasource has to be a MySQL 8 instance that may be wiped: the Liquibase changelog is MySQL-only,
+ * and indexing deletes all existing data.
+ */
+public class CrawlHarness {
+    private static final Set<String> OPTIONS = Set.of("pages", "fan-out", "page-words", "latency", "error-rate", "timeout");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        List<String> springArgs = new ArrayList<>();
+        for(String arg : args) {
+            String name = arg.startsWith("--") && arg.contains("=") ? arg.substring(2, arg.indexOf('=')) : "";
+            if(OPTIONS.contains(name)) {
+                options.put(name, arg.substring(arg.indexOf('=') + 1));
+            } else {
+                springArgs.add(arg);
+            }
+        }
+        int pages = Integer.parseInt(options.getOrDefault("pages", "2000"));
+        int fanOut = Integer.parseInt(options.getOrDefault("fan-out", "8"));
+        int pageWords = Integer.parseInt(options.getOrDefault("page-words", "300"));
+        long latency = Long.parseLong(options.getOrDefault("latency", "20"));
+        double errorRate = Double.parseDouble(options.getOrDefault("error-rate", "0.01"));
+        long timeout = Long.parseLong(options.getOrDefault("timeout", "1800"));
+
+        try(StandInSite site = StandInSite.start(pages, fanOut, pageWords, latency, errorRate)) {
+            defaultArg(springArgs, "indexing-settings.sites[0].url", site.getUrl());
+            defaultArg(springArgs, "indexing-settings.sites[0].name", "Harness");
+            defaultArg(springArgs, "indexing-settings.delay", "0");
+            defaultArg(springArgs, "server.port", "0");
+            defaultArg(springArgs, "spring.jpa.show-sql", "false");
+
+            try(ConfigurableApplicationContext context = SpringApplication.run(Application.class,
+                    springArgs.toArray(String[]::new))) {
+                Report report = crawl(context, site, timeout);
+                System.out.printf("%nCrawl harness: %d pages, fan-out %d, %d words/page, latency %d ms, error rate %.3f%n",
+                        pages, fanOut, pageWords, latency, errorRate);
+                report.print();
+            }
+        }
+    }
+
+    private static Report crawl(ConfigurableApplicationContext context, StandInSite site, long timeout)
+            throws InterruptedException {
+        IndexingServiceImpl indexingService = context.getBean(IndexingServiceImpl.class);
+        SiteRepository siteRepository = context.getBean(SiteRepository.class);
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        Instant started = Instant.now();
+        long start = System.nanoTime();
+        long deadline = start + timeout * 1_000_000_000L;
+        indexingService.startIndexing(false);
+        String status;
+        while(true) {
+            Thread.sleep(200);
+            SiteEntity siteEntity = siteRepository.findOneByUrlAndLiveTrue(site.getUrl());
+            if(siteEntity != null && siteEntity.getStatusTime().isAfter(started)
+                    && siteEntity.getStatus() != Status.INDEXING && !indexingService.isIndexing()) {
+                status = siteEntity.getStatus().name();
+                break;
+            }
+            if(System.nanoTime() > deadline) {
+                indexingService.stopIndexing();
+                status = "TIMED OUT";
+                break;
+            }
+        }
+
+        Report report = new Report();
+        report.status = status;
+        report.seconds = (System.nanoTime() - start) / 1e9;
+        report.pages = context.getBean(PageRepository.class).count();
+        report.rows = report.pages + context.getBean(LemmaRepository.class).count()
+                + context.getBean(IndexRepository.class).count();
+        report.requests = site.getRequests();
+        report.errors = site.getErrors();
+        report.bytes = site.getBytesServed();
+        report.peakHeap = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        return report;
+    }
+
+    private static void defaultArg(List<String> args, String name, String value) {
+        if(args.stream().noneMatch(arg -> arg.startsWith("--" + name + "="))) {
+            args.add("--" + name + "=" + value);
+        }
+    }
+
+    private static class Report {
+        private String status;
+        private double seconds;
+        private long pages;
+        private long rows;
+        private long requests;
+        private long errors;
+        private long bytes;
+        private long peakHeap;
+
+        private void print() {
+            System.out.printf("  status              %s%n", status);
+            System.out.printf("  time to completion  %.1f s%n", seconds);
+            System.out.printf("  requests            %d (%d errors)%n", requests, errors);
+            System.out.printf("  pages/sec           %.1f%n", pages / seconds);
+            System.out.printf("  bytes/sec           %.0f%n", bytes / seconds);
+            System.out.printf("  DB rows/sec         %.0f (%d rows)%n", rows / seconds, rows);
+            System.out.printf("  peak heap           %d MB%n", peakHeap >> 20);
+        }
+    }
+}
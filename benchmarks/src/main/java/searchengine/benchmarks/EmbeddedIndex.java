@@ -0,0 +1,192 @@
+package searchengine.benchmarks;
+
+import searchengine.lemma.*;
+import searchengine.model.SiteEntity;
+import searchengine.config.Config;
+import searchengine.searching.*;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory H2 database with the page, lemma and index tables of one synthetic site,
+ * filled the same way the crawler fills MySQL. The inverted index is loaded from it the same way
+ * as {@code InvertedIndexLoader} does, and positions are read back with the repository query.
+ */
+public class EmbeddedIndex implements AutoCloseable {
+    public static final int SITE_ID = 1;
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+    private static final int BATCH_SIZE = 1000;
+
+    private final Connection connection;
+
+    private EmbeddedIndex(Connection connection) {
+        this.connection = connection;
+    }
+
+    public static EmbeddedIndex create(Corpus corpus, Lemmatizer lemmatizer) throws SQLException {
+        Connection connection = DriverManager.getConnection(
+                "jdbc:h2:mem:search_engine_" + DATABASES.incrementAndGet() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        EmbeddedIndex index = new EmbeddedIndex(connection);
+        index.createTables();
+        index.fill(corpus, lemmatizer);
+        return index;
+    }
+
+    public static SiteEntity site() {
+        SiteEntity site = new SiteEntity();
+        site.setId(SITE_ID);
+        site.setName("benchmark");
+        site.setUrl("http://localhost/");
+        return site;
+    }
+
+    public InvertedIndex load() throws SQLException {
+        return load(new SegmentStore(new Config()));
+    }
+
+    public InvertedIndex load(SegmentStore segmentStore) throws SQLException {
+        InvertedIndex invertedIndex = new InvertedIndex(segmentStore);
+        String lemma = null;
+        int[] docs = new int[64];
+        int[] ranks = new int[64];
+        int count = 0;
+        try(Statement statement = connection.createStatement();
+            ResultSet rows = statement.executeQuery("SELECT l.`lemma`, i.`page_id`, i.`rank` FROM `index` i " +
+                    "JOIN `lemma` l ON l.`id` = i.`lemma_id` ORDER BY l.`id`, i.`page_id`")) {
+            while(rows.next()) {
+                if(!rows.getString(1).equals(lemma)) {
+                    if(count > 0) {
+                        invertedIndex.appendPostings(SITE_ID, lemma, docs, ranks, count);
+                    }
+                    lemma = rows.getString(1);
+                    count = 0;
+                }
+                if(count == docs.length) {
+                    docs = Arrays.copyOf(docs, count * 2);
+                    ranks = Arrays.copyOf(ranks, count * 2);
+                }
+                docs[count] = rows.getInt(2);
+                ranks[count++] = (int) Math.round(rows.getDouble(3));
+            }
+        }
+        if(count > 0) {
+            invertedIndex.appendPostings(SITE_ID, lemma, docs, ranks, count);
+        }
+
+        int pageCount = 0;
+        try(Statement statement = connection.createStatement();
+            ResultSet rows = statement.executeQuery("SELECT `id`, `token_count` FROM `page`")) {
+            while(rows.next()) {
+                invertedIndex.setDocLength(SITE_ID, rows.getInt(1), rows.getInt(2));
+                pageCount++;
+            }
+        }
+        invertedIndex.addPageCount(SITE_ID, pageCount);
+        return invertedIndex;
+    }
+
+    public Map<Integer, Map<String, int[]>> loadPositions(Collection<Integer> pageIds, Collection<String> lemmas) {
+        String sql = "SELECT i.`page_id`, l.`lemma`, i.`positions` FROM `index` i " +
+                "JOIN `lemma` l ON l.`id` = i.`lemma_id` " +
+                "WHERE i.`page_id` IN (" + placeholders(pageIds.size()) + ") " +
+                "AND l.`lemma` IN (" + placeholders(lemmas.size()) + ")";
+        Map<Integer, Map<String, int[]>> positions = new HashMap<>();
+        try(PreparedStatement statement = connection.prepareStatement(sql)) {
+            int parameter = 1;
+            for(Integer pageId : pageIds) {
+                statement.setInt(parameter++, pageId);
+            }
+            for(String lemma : lemmas) {
+                statement.setString(parameter++, lemma);
+            }
+            try(ResultSet rows = statement.executeQuery()) {
+                while(rows.next()) {
+                    positions.computeIfAbsent(rows.getInt(1), pageId -> new HashMap<>())
+                            .put(rows.getString(2), LemmaOccurrences.decode(rows.getBytes(3)));
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+        return positions;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try(Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+        connection.close();
+    }
+
+    private void createTables() throws SQLException {
+        try(Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE `page` (`id` INT NOT NULL PRIMARY KEY, `site_id` INT NOT NULL, " +
+                    "`path` VARCHAR(255) NOT NULL, `content` MEDIUMTEXT NOT NULL, `token_count` INT)");
+            statement.execute("CREATE TABLE `lemma` (`id` INT NOT NULL PRIMARY KEY, `site_id` INT NOT NULL, " +
+                    "`lemma` VARCHAR(255) NOT NULL, `frequency` INT NOT NULL)");
+            statement.execute("CREATE TABLE `index` (`id` INT NOT NULL PRIMARY KEY, `page_id` INT NOT NULL, " +
+                    "`lemma_id` INT NOT NULL, `rank` FLOAT NOT NULL, `offsets` BLOB, `positions` BLOB)");
+            statement.execute("CREATE INDEX `index_page_idx` ON `index` (`page_id`)");
+        }
+    }
+
+    private void fill(Corpus corpus, Lemmatizer lemmatizer) throws SQLException {
+        connection.setAutoCommit(false);
+        Map<String, Integer> lemmaIds = new HashMap<>();
+        Map<Integer, Integer> frequencies = new HashMap<>();
+        try(PreparedStatement pages = connection.prepareStatement("INSERT INTO `page` " +
+                "(`id`, `site_id`, `path`, `content`, `token_count`) VALUES (?, ?, ?, ?, ?)");
+            PreparedStatement indexes = connection.prepareStatement("INSERT INTO `index` " +
+                "(`id`, `page_id`, `lemma_id`, `rank`, `offsets`, `positions`) VALUES (?, ?, ?, ?, ?, ?)")) {
+            int indexId = 0;
+            int pageId = 0;
+            for(String content : corpus.getPages()) {
+                Map<String, LemmaOccurrences> lemmas = lemmatizer.analyzeText(content);
+                pages.setInt(1, ++pageId);
+                pages.setInt(2, SITE_ID);
+                pages.setString(3, "/page/" + pageId + "/");
+                pages.setString(4, content);
+                pages.setInt(5, lemmas.values().stream().mapToInt(LemmaOccurrences::getCount).sum());
+                pages.addBatch();
+
+                for(Map.Entry<String, LemmaOccurrences> entry : lemmas.entrySet()) {
+                    int lemmaId = lemmaIds.computeIfAbsent(entry.getKey(), key -> lemmaIds.size() + 1);
+                    frequencies.merge(lemmaId, 1, Integer::sum);
+                    indexes.setInt(1, ++indexId);
+                    indexes.setInt(2, pageId);
+                    indexes.setInt(3, lemmaId);
+                    indexes.setDouble(4, entry.getValue().getCount());
+                    indexes.setBytes(5, entry.getValue().encodeOffsets());
+                    indexes.setBytes(6, entry.getValue().encodePositions());
+                    indexes.addBatch();
+                }
+                if(pageId % BATCH_SIZE == 0) {
+                    pages.executeBatch();
+                    indexes.executeBatch();
+                }
+            }
+            pages.executeBatch();
+            indexes.executeBatch();
+        }
+
+        try(PreparedStatement statement = connection.prepareStatement("INSERT INTO `lemma` " +
+                "(`id`, `site_id`, `lemma`, `frequency`) VALUES (?, ?, ?, ?)")) {
+            for(Map.Entry<String, Integer> entry : lemmaIds.entrySet()) {
+                statement.setInt(1, entry.getValue());
+                statement.setInt(2, SITE_ID);
+                statement.setString(3, entry.getKey());
+                statement.setInt(4, frequencies.get(entry.getValue()));
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+        connection.commit();
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+}
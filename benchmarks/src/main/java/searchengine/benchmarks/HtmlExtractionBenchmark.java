@@ -0,0 +1,90 @@
+package searchengine.benchmarks;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.*;
+import org.openjdk.jmh.annotations.*;
+import searchengine.indexing.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Title, text and link extraction of a page: the single-pass {@link HtmlExtractor} against
+ * a Jsoup DOM with {@code text()}, {@code title()} and {@code select("a[href]")}. Run with
+ * {@code -prof gc}; {@code gc.alloc.rate.norm} is the number of bytes allocated per page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class HtmlExtractionBenchmark {
+    private static final int PAGES = 32;
+    private static final int LINKS = 60;
+    private static final String BASE_URI = "https://example.org/section/page/";
+
+    @Param({"300", "3000"})
+    private int wordsPerPage;
+
+    private List<byte[]> pages;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(Corpus.SEED);
+        pages = new ArrayList<>(PAGES);
+        for(String text : Corpus.generate(PAGES, wordsPerPage, Corpus.SEED).getPages()) {
+            pages.add(html(text, random).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Benchmark
+    public PageData dom() throws IOException {
+        Document document = Jsoup.parse(new ByteArrayInputStream(pages.get(next++ % PAGES)), "UTF-8", BASE_URI);
+        PageData pageData = new PageData();
+        pageData.setTitle(document.title());
+        pageData.setText(document.text());
+        List<String> links = new ArrayList<>();
+        for(Element element : document.select("a[href]")) {
+            links.add(element.attr("abs:href"));
+        }
+        pageData.setLinks(links);
+        return pageData;
+    }
+
+    @Benchmark
+    public PageData streaming() {
+        PageData pageData = new PageData();
+        HtmlExtractor.extract(pages.get(next++ % PAGES), "UTF-8", BASE_URI, pageData);
+        return pageData;
+    }
+
+    private static String html(String text, Random random) {
+        StringBuilder html = new StringBuilder("<!DOCTYPE html><html><head><meta charset=\"utf-8\"><title>")
+                .append(text, 0, Math.min(60, text.length()))
+                .append("</title><style>body { font: 14px sans-serif; } .nav a { color: #333; }</style>")
+                .append("<script>window.dataLayer = window.dataLayer || []; if (a < b) { track('view'); }</script>")
+                .append("</head><body><header><nav class=\"nav\"><ul>");
+        for(int i = 0; i < LINKS / 2; i++) {
+            html.append("<li><a href=\"/catalog/").append(random.nextInt(1000)).append("/\">Раздел ").append(i)
+                    .append("</a></li>");
+        }
+        html.append("</ul></nav></header><main><article>");
+        String[] sentences = text.split("\\. ");
+        for(int i = 0; i < sentences.length; i++) {
+            html.append(i % 4 == 0 ? "<p>" : " ").append(sentences[i].replace("и ", "<b>и</b>&nbsp;"));
+            if(i % 4 == 3) {
+                html.append(". <a href=\"../item-").append(random.nextInt(100_000)).append(".html\">далее</a></p>");
+            } else {
+                html.append('.');
+            }
+        }
+        html.append("</article></main><footer><!-- counters --><div class=\"links\">");
+        for(int i = 0; i < LINKS / 2; i++) {
+            html.append("<a href=\"https://example.org/info/").append(i).append("\">&copy; ").append(i).append("</a> ");
+        }
+        return html.append("</div></footer></body></html>").toString();
+    }
+}
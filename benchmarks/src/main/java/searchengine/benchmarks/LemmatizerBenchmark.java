@@ -0,0 +1,49 @@
+package searchengine.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import searchengine.lemma.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LemmatizerBenchmark {
+    private static final int PAGES = 64;
+
+    @Param({"300", "3000"})
+    private int wordsPerPage;
+
+    private Lemmatizer lemmatizer;
+    private List<String> pages;
+    private String[] words;
+    private int next;
+
+    @Setup
+    public void setup() {
+        lemmatizer = new Lemmatizer();
+        pages = Corpus.generate(PAGES, wordsPerPage, Corpus.SEED).getPages();
+        words = pages.get(0).split("\\s+");
+    }
+
+    @Benchmark
+    public Map<String, Integer> lemmatizeText() {
+        return lemmatizer.lemmatizeText(pages.get(next++ % PAGES));
+    }
+
+    @Benchmark
+    public Map<String, LemmaOccurrences> analyzeText() {
+        return lemmatizer.analyzeText(pages.get(next++ % PAGES));
+    }
+
+    @Benchmark
+    public void getNormalForm(Blackhole blackhole) {
+        for(String word : words) {
+            blackhole.consume(lemmatizer.getNormalForm(word));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package searchengine.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import searchengine.lemma.Lemmatizer;
+import searchengine.model.SiteEntity;
+import searchengine.searching.*;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Intersection and BM25 top-k of {@code SearchingTask} over an index loaded from an embedded database.
+ * Phrase queries also read positions back from the database for the intersected candidates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SearchBenchmark {
+    private static final int QUERIES = 64;
+
+    @Param({"20000"})
+    private int pageCount;
+
+    @Param({"10", "100"})
+    private int limit;
+
+    @Param({"0.7"})
+    private double maxLemmaPercentage;
+
+    private EmbeddedIndex embeddedIndex;
+    private InvertedIndex invertedIndex;
+    private SiteEntity site;
+    private List<SearchQuery> queries;
+    private List<SearchQuery> phrases;
+    private int next;
+
+    @Setup
+    public void setup() throws SQLException {
+        Lemmatizer lemmatizer = new Lemmatizer();
+        Corpus corpus = Corpus.generate(pageCount, 300, Corpus.SEED);
+        embeddedIndex = EmbeddedIndex.create(corpus, lemmatizer);
+        invertedIndex = embeddedIndex.load();
+        site = EmbeddedIndex.site();
+        queries = corpus.queries(QUERIES).stream().map(query -> SearchQuery.parse(query, lemmatizer)).toList();
+        phrases = corpus.phrases(QUERIES).stream().map(query -> SearchQuery.parse(query, lemmatizer)).toList();
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        embeddedIndex.close();
+    }
+
+    @Benchmark
+    public SiteMatches search() {
+        return search(queries.get(next++ % QUERIES));
+    }
+
+    @Benchmark
+    public SiteMatches phraseSearch() {
+        return search(phrases.get(next++ % QUERIES));
+    }
+
+    private SiteMatches search(SearchQuery query) {
+        return new SearchingTask(site, invertedIndex, query, embeddedIndex::loadPositions,
+                maxLemmaPercentage, limit).invoke();
+    }
+}
@@ -0,0 +1,82 @@
+package searchengine.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import searchengine.config.Config;
+import searchengine.lemma.Lemmatizer;
+import searchengine.model.SiteEntity;
+import searchengine.searching.*;
+import java.io.IOException;
+import java.nio.file.*;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Startup and search with the index in heap posting lists, rebuilt from the embedded database,
+ * against the index opened from a mapped segment file. {@code open} is the startup cost of one site.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SegmentBenchmark {
+    private static final int QUERIES = 64;
+
+    @Param({"20000"})
+    private int pageCount;
+
+    @Param({"heap", "segment"})
+    private String storage;
+
+    private EmbeddedIndex embeddedIndex;
+    private Path directory;
+    private SegmentStore segmentStore;
+    private InvertedIndex invertedIndex;
+    private SiteEntity site;
+    private List<SearchQuery> queries;
+    private int next;
+
+    @Setup
+    public void setup() throws SQLException, IOException {
+        Lemmatizer lemmatizer = new Lemmatizer();
+        Corpus corpus = Corpus.generate(pageCount, 300, Corpus.SEED);
+        embeddedIndex = EmbeddedIndex.create(corpus, lemmatizer);
+        directory = Files.createTempDirectory("segments");
+        Config config = new Config();
+        config.setSegmentDirectory(directory.toString());
+        segmentStore = new SegmentStore(config);
+        invertedIndex = embeddedIndex.load(segmentStore);
+        if(storage.equals("segment")) {
+            invertedIndex.persistChanged(0);
+        }
+        site = EmbeddedIndex.site();
+        queries = corpus.queries(QUERIES).stream().map(query -> SearchQuery.parse(query, lemmatizer)).toList();
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException, IOException {
+        embeddedIndex.close();
+        try(Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public InvertedIndex open() throws SQLException {
+        if(storage.equals("heap")) {
+            return embeddedIndex.load();
+        }
+        InvertedIndex opened = new InvertedIndex(segmentStore);
+        opened.openSegment(EmbeddedIndex.SITE_ID);
+        return opened;
+    }
+
+    @Benchmark
+    public SiteMatches search() {
+        return new SearchingTask(site, invertedIndex, queries.get(next++ % QUERIES), embeddedIndex::loadPositions,
+                0.7, 10).invoke();
+    }
+}
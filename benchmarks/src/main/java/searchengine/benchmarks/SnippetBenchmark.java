@@ -0,0 +1,68 @@
+package searchengine.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import searchengine.lemma.*;
+import searchengine.services.SearchServiceImpl;
+import java.lang.invoke.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snippets for the two lemmas that first occur deepest in a page, where the lemmatizing snippet
+ * has to walk almost the whole text. {@code offsets} uses the stored lemma offsets,
+ * {@code lemmatizing} is the fallback for rows without them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SnippetBenchmark {
+    private static final int PAGES = 64;
+
+    @Param({"offsets", "lemmatizing"})
+    private String mode;
+
+    @Param({"3000"})
+    private int wordsPerPage;
+
+    private MethodHandle makeSnippet;
+    private SearchServiceImpl searchService;
+    private List<String> pages;
+    private List<Set<String>> lemmas;
+    private List<List<int[]>> offsets;
+    private int next;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        Lemmatizer lemmatizer = new Lemmatizer();
+        searchService = new SearchServiceImpl(null, null, null, null, null, null, lemmatizer, null, null, null, null);
+        makeSnippet = MethodHandles.privateLookupIn(SearchServiceImpl.class, MethodHandles.lookup())
+                .findVirtual(SearchServiceImpl.class, "makeSnippet",
+                        MethodType.methodType(String.class, String.class, List.class, Set.class));
+
+        pages = Corpus.generate(PAGES, wordsPerPage, Corpus.SEED).getPages();
+        lemmas = new ArrayList<>();
+        offsets = new ArrayList<>();
+        for(String page : pages) {
+            Map<String, LemmaOccurrences> occurrences = lemmatizer.analyzeText(page);
+            List<String> deep = occurrences.entrySet().stream()
+                    .sorted(Comparator.comparingInt(
+                            (Map.Entry<String, LemmaOccurrences> entry) -> entry.getValue().getOffsets()[0])
+                            .reversed())
+                    .map(Map.Entry::getKey)
+                    .limit(2)
+                    .toList();
+            lemmas.add(new HashSet<>(deep));
+            offsets.add(deep.stream().map(lemma -> occurrences.get(lemma).getOffsets()).toList());
+        }
+    }
+
+    @Benchmark
+    public String makeSnippet() throws Throwable {
+        int page = next++ % PAGES;
+        List<int[]> pageOffsets = mode.equals("offsets") ? offsets.get(page) : null;
+        return (String) makeSnippet.invoke(searchService, pages.get(page), pageOffsets, lemmas.get(page));
+    }
+}
@@ -0,0 +1,132 @@
+package searchengine.benchmarks;
+
+import com.sun.net.httpserver.*;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local website the crawler can be pointed at instead of the internet. Page {@code n} is served
+ * at {@code /page/n/} (page 0 at {@code /}). It links to the next page, so every page is reachable,
+ * and to {@code fanOut - 1} more pages picked by a fixed hash. A seeded share of the pages,
+ * never the main page, answers with status 500. Every response is delayed by {@code latencyMillis}.
+ */
+public class StandInSite implements AutoCloseable {
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Corpus corpus;
+    private final int fanOut;
+    private final long latencyMillis;
+    private final double errorRate;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder bytesServed = new LongAdder();
+
+    private StandInSite(HttpServer server, Corpus corpus, int fanOut, long latencyMillis, double errorRate) {
+        this.server = server;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.corpus = corpus;
+        this.fanOut = fanOut;
+        this.latencyMillis = latencyMillis;
+        this.errorRate = errorRate;
+    }
+
+    public static StandInSite start(int pageCount, int fanOut, int wordsPerPage, long latencyMillis, double errorRate)
+            throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        StandInSite site = new StandInSite(server, Corpus.generate(pageCount, wordsPerPage, Corpus.SEED),
+                fanOut, latencyMillis, errorRate);
+        server.createContext("/", site::handle);
+        server.setExecutor(site.executor);
+        server.start();
+        return site;
+    }
+
+    public String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getBytesServed() {
+        return bytesServed.sum();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try(exchange) {
+            requests.increment();
+            if(latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+            int page = pageNumber(exchange.getRequestURI().getPath());
+            if(page < 0) {
+                respond(exchange, 404, "<html><body>Not found</body></html>");
+            } else if(page > 0 && failing(page)) {
+                errors.increment();
+                respond(exchange, 500, "<html><body>Internal error</body></html>");
+            } else {
+                respond(exchange, 200, render(page));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int pageNumber(String path) {
+        if(path.equals("/")) {
+            return 0;
+        }
+        String[] parts = path.split("/");
+        if(parts.length != 3 || !parts[1].equals("page")) {
+            return -1;
+        }
+        try {
+            int page = Integer.parseInt(parts[2]);
+            return page > 0 && page < corpus.getPages().size() ? page : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private boolean failing(int page) {
+        return new SplittableRandom(Corpus.SEED ^ page).nextDouble() < errorRate;
+    }
+
+    private String render(int page) {
+        int pageCount = corpus.getPages().size();
+        StringBuilder html = new StringBuilder("<html><head><title>Page ").append(page)
+                .append("</title></head><body><p>").append(corpus.getPages().get(page)).append("</p><ul>");
+        for(int i = 0; i < fanOut; i++) {
+            int target = i == 0 ? (page + 1) % pageCount
+                    : (int) Math.floorMod(page * 31L + i * 1_000_003L, pageCount);
+            html.append("<li><a href=\"").append(target == 0 ? "/" : "/page/" + target + "/").append("\">Page ")
+                    .append(target).append("</a></li>");
+        }
+        return html.append("</ul></body></html>").toString();
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try(OutputStream stream = exchange.getResponseBody()) {
+            stream.write(bytes);
+        }
+        bytesServed.add(bytes.length);
+    }
+}
@@ -0,0 +1,65 @@
+package searchengine.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import searchengine.indexing.VisitedSet;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+
+/**
+ * Visited-path set of a crawl against the {@code ConcurrentHashMap} it replaced.
+ * {@code fill} inserts {@value #PATHS} paths into an empty set; run it with {@code -prof gc}
+ * and {@code gc.alloc.rate.norm} is the number of bytes per path. {@code revisit} checks
+ * already seen paths from several threads, as link extraction does on most links.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class VisitedSetBenchmark {
+    private static final int PATHS = 100_000;
+
+    @Param({"visitedSet", "concurrentHashMap"})
+    private String implementation;
+
+    private String[] paths;
+    private Supplier<Predicate<String>> factory;
+    private Predicate<String> filled;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(Corpus.SEED);
+        paths = new String[PATHS];
+        for(int i = 0; i < PATHS; i++) {
+            paths[i] = "/catalog/" + random.nextInt(1000) + "/item-" + i + "/";
+        }
+        factory = implementation.equals("visitedSet") ?
+                () -> new VisitedSet()::add :
+                () -> {
+                    Map<String, String> visited = new ConcurrentHashMap<>();
+                    return path -> visited.putIfAbsent(path, "") == null;
+                };
+        filled = factory.get();
+        for(String path : paths) {
+            filled.test(path);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PATHS)
+    public Predicate<String> fill() {
+        Predicate<String> visited = factory.get();
+        for(String path : paths) {
+            visited.test(path);
+        }
+        return visited;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean revisit() {
+        return filled.test(paths[ThreadLocalRandom.current().nextInt(PATHS)]);
+    }
+}
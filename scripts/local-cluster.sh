@@ -0,0 +1,99 @@
+#!/usr/bin/env bash
+# Runs a cluster of two indexing nodes and a router on this machine and checks it:
+# every configured site must be crawled by exactly one node, and the router must report
+# all of them. With --check the cluster is stopped after the check, otherwise it keeps
+# running until Ctrl-C (router on http://localhost:8080).
+#
+# Needs MySQL; every instance gets its own database, created on first start.
+# Build the application first: mvn -B install -DskipTests
+set -euo pipefail
+
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+JAR=${JAR:-$ROOT/SearchEngine/target/SearchEngine-1.0-SNAPSHOT-exec.jar}
+DB_URL=${DB_URL:-jdbc:mysql://localhost:3306}
+DB_USER=${DB_USER:-root}
+DB_PASSWORD=${DB_PASSWORD:-skillbox}
+WORK=${WORK:-$ROOT/SearchEngine/target/cluster}
+NODES=http://localhost:8081,http://localhost:8082
+CHECK_ONLY=false
+[ "${1:-}" = "--check" ] && CHECK_ONLY=true
+PIDS=()
+
+if [ ! -f "$JAR" ]; then
+    echo "$JAR not found, build it with: mvn -B install -DskipTests" >&2
+    exit 1
+fi
+
+stop() {
+    if [ ${#PIDS[@]} -gt 0 ]; then
+        kill "${PIDS[@]}" 2>/dev/null || true
+        wait 2>/dev/null || true
+    fi
+}
+trap stop EXIT
+
+# start <name> <port> [arguments...]: every instance runs in its own directory, so segment
+# files and snapshots are not shared.
+start() {
+    local name=$1 port=$2
+    shift 2
+    mkdir -p "$WORK/$name"
+    (cd "$WORK/$name" && exec java -jar "$JAR" --server.port="$port" \
+        --spring.datasource.url="$DB_URL/search_engine_$name?createDatabaseIfNotExist=true&rewriteBatchedStatements=true" \
+        --spring.datasource.username="$DB_USER" --spring.datasource.password="$DB_PASSWORD" \
+        --spring.jpa.show-sql=false --cluster.nodes="$NODES" "$@" > "$WORK/$name.log" 2>&1) &
+    PIDS+=($!)
+}
+
+await() {
+    local port=$1
+    for _ in $(seq 120); do
+        curl -sf "http://localhost:$port/actuator/health" > /dev/null && return 0
+        sleep 1
+    done
+    echo "Instance on port $port did not start, see $WORK/*.log" >&2
+    exit 1
+}
+
+urls() {
+    curl -sf "$1" | grep -o '"url":"[^"]*"' | sed 's/"url":"\(.*\)"/\1/' | sort
+}
+
+start node1 8081 --cluster.self=http://localhost:8081
+start node2 8082 --cluster.self=http://localhost:8082
+start router 8080 --cluster.self=http://localhost:8080 --cluster.router=true
+for port in 8081 8082 8080; do
+    await "$port"
+done
+echo "Cluster started, logs in $WORK"
+
+for port in 8081 8082; do
+    curl -sf "http://localhost:$port/api/startIndexing" > /dev/null
+done
+sleep 5
+
+node1=$(urls http://localhost:8081/api/shard/statistics)
+node2=$(urls http://localhost:8082/api/shard/statistics)
+router=$(urls http://localhost:8080/api/statistics)
+echo "node1: $(echo $node1)"
+echo "node2: $(echo $node2)"
+shared=$(comm -12 <(echo "$node1") <(echo "$node2"))
+merged=$(printf '%s\n%s\n' "$node1" "$node2" | sed '/^$/d' | sort)
+if [ -n "$shared" ]; then
+    echo "FAILED: sites crawled by both nodes: $(echo $shared)" >&2
+    exit 1
+fi
+if [ "$merged" != "$router" ] || [ -z "$router" ]; then
+    echo "FAILED: router reports $(echo $router), nodes crawl $(echo $merged)" >&2
+    exit 1
+fi
+echo "OK: every site is crawled by one node and the router reports all $(echo "$router" | wc -l) sites"
+
+if $CHECK_ONLY; then
+    for port in 8081 8082; do
+        curl -sf "http://localhost:$port/api/stopIndexing" > /dev/null || true
+    done
+    exit 0
+fi
+echo "Router on http://localhost:8080, press Ctrl-C to stop"
+wait